@@ -0,0 +1,94 @@
+package fr.mrmicky.fastinv.benchmarks;
+
+import fr.mrmicky.fastinv.FastInv;
+import fr.mrmicky.fastinv.FastInvManager;
+import fr.mrmicky.fastinv.benchmarks.standin.StandInPlayer;
+import fr.mrmicky.fastinv.benchmarks.standin.StandInServer;
+import org.bukkit.Material;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch of a click event by the FastInv listener to the handlers of a full inventory.
+ * {@link MapClickDispatchBenchmark} measures the same clicks with the previous map-based dispatch.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClickDispatchBenchmark {
+
+    @Param({"false", "true"})
+    public boolean typedHandlers;
+
+    @Param({"0", "8"})
+    public int globalHandlers;
+
+    private FastInvManager.InventoryListener listener;
+    private InventoryClickEvent itemClick;
+    private InventoryClickEvent emptySlotClick;
+    private InventoryClickEvent playerInventoryClick;
+
+    private long clicks;
+
+    @Setup
+    public void setup() {
+        StandInServer server = StandInServer.install();
+        StandInPlayer player = server.addPlayer("ClickBenchmark");
+        FastInv inv = new FastInv(54);
+        ItemStack item = new ItemStack(Material.DIAMOND);
+
+        for (int slot = 0; slot < 45; slot++) {
+            inv.setItem(slot, item, e -> this.clicks++);
+
+            if (this.typedHandlers) {
+                inv.setClickHandler(slot, ClickType.SHIFT_LEFT, e -> this.clicks++);
+            }
+        }
+
+        for (int i = 0; i < this.globalHandlers; i++) {
+            inv.addClickHandler(e -> this.clicks++);
+        }
+
+        inv.open(player.getPlayer());
+
+        this.listener = new FastInvManager.InventoryListener(server.getPlugin());
+        this.itemClick = player.createClick(13, ClickType.LEFT);
+        this.emptySlotClick = player.createClick(49, ClickType.LEFT);
+        this.playerInventoryClick = player.createClick(70, ClickType.LEFT);
+    }
+
+    @Benchmark
+    public long clickItem() {
+        this.listener.onInventoryClick(this.itemClick);
+        return this.clicks;
+    }
+
+    @Benchmark
+    public long clickEmptySlot() {
+        this.listener.onInventoryClick(this.emptySlotClick);
+        return this.clicks;
+    }
+
+    @Benchmark
+    public long clickPlayerInventory() {
+        this.listener.onInventoryClick(this.playerInventoryClick);
+        return this.clicks;
+    }
+}
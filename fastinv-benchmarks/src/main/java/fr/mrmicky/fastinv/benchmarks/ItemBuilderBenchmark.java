@@ -0,0 +1,121 @@
+package fr.mrmicky.fastinv.benchmarks;
+
+import fr.mrmicky.fastinv.ItemBuilder;
+import fr.mrmicky.fastinv.ItemTemplate;
+import fr.mrmicky.fastinv.benchmarks.standin.StandInServer;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Building items with an ItemBuilder chain, interning them, and rendering per-player templates.
+ * Run with the gc profiler to compare the allocations per built item ({@code gc.alloc.rate.norm})
+ * with {@link #buildChainPerCallMeta()}, the same chain copying the meta on each call like ItemBuilder 3.1.1.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ItemBuilderBenchmark {
+
+    private ItemTemplate template;
+    private Player player;
+    private int balance;
+
+    @Setup
+    public void setup() {
+        StandInServer server = StandInServer.install();
+
+        this.player = server.addPlayer("ItemBenchmark").getPlayer();
+        this.template = new ItemBuilder(Material.GOLD_INGOT)
+                .name("Balance: {balance}")
+                .lore("Player: {player}", "", "Click to open the shop")
+                .template()
+                .placeholder("balance", p -> Integer.toString(this.balance))
+                .placeholder("player", Player::getName);
+    }
+
+    @Benchmark
+    public ItemStack buildChain() {
+        return newBuilder().build();
+    }
+
+    @Benchmark
+    public ItemStack buildChainPerCallMeta() {
+        ItemStack item = new ItemStack(Material.DIAMOND_SWORD);
+
+        editMeta(item, meta -> meta.setDisplayName("Excalibur"));
+        editMeta(item, meta -> meta.setLore(Arrays.asList("A legendary sword", "Sharpness V")));
+        editMeta(item, meta -> meta.addEnchant(Enchantment.DAMAGE_ALL, 5, true));
+        editMeta(item, meta -> meta.addItemFlags(ItemFlag.HIDE_ENCHANTS, ItemFlag.HIDE_ATTRIBUTES));
+        editMeta(item, meta -> {
+            List<String> lore = meta.getLore();
+
+            if (lore == null) {
+                meta.setLore(Collections.singletonList("Unbreakable"));
+                return;
+            }
+
+            lore.add("Unbreakable");
+            meta.setLore(lore);
+        });
+
+        return item;
+    }
+
+    @Benchmark
+    public ItemStack buildInterned() {
+        return newBuilder().intern();
+    }
+
+    @Benchmark
+    public ItemStack renderTemplateUnchanged() {
+        return this.template.render(this.player);
+    }
+
+    @Benchmark
+    public ItemStack renderTemplateChanged() {
+        this.balance++;
+        return this.template.render(this.player);
+    }
+
+    // ItemBuilder#meta of FastInv 3.1.1: each call copies the meta out of the item and back in
+    private static void editMeta(ItemStack item, Consumer<ItemMeta> metaConsumer) {
+        ItemMeta meta = item.getItemMeta();
+
+        if (meta != null) {
+            metaConsumer.accept(meta);
+            item.setItemMeta(meta);
+        }
+    }
+
+    private static ItemBuilder newBuilder() {
+        return new ItemBuilder(Material.DIAMOND_SWORD)
+                .name("Excalibur")
+                .lore("A legendary sword", "Sharpness V")
+                .enchant(Enchantment.DAMAGE_ALL, 5)
+                .flags(ItemFlag.HIDE_ENCHANTS, ItemFlag.HIDE_ATTRIBUTES)
+                .addLore("Unbreakable");
+    }
+}
@@ -0,0 +1,116 @@
+package fr.mrmicky.fastinv.benchmarks;
+
+import fr.mrmicky.fastinv.FastInv;
+import fr.mrmicky.fastinv.FastInvManager;
+import fr.mrmicky.fastinv.benchmarks.standin.StandInPlayer;
+import fr.mrmicky.fastinv.benchmarks.standin.StandInServer;
+import org.bukkit.Material;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Baseline for {@link ClickDispatchBenchmark}: the click dispatch of FastInv 3.1.1, with the slot handlers
+ * in a {@code HashMap<Integer, Consumer>} and the global handlers called with {@code forEach}.
+ * The FastInv is found like the current listener, so only the handler tables differ between both benchmarks,
+ * and the benchmark methods have the same names to compare both results side by side.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapClickDispatchBenchmark {
+
+    @Param({"0", "8"})
+    public int globalHandlers;
+
+    private final Map<Integer, Consumer<InventoryClickEvent>> itemHandlers = new HashMap<>();
+    private final List<Consumer<InventoryClickEvent>> clickHandlers = new ArrayList<>();
+
+    private InventoryClickEvent itemClick;
+    private InventoryClickEvent emptySlotClick;
+    private InventoryClickEvent playerInventoryClick;
+
+    private long clicks;
+
+    @Setup
+    public void setup() {
+        StandInServer server = StandInServer.install();
+        StandInPlayer player = server.addPlayer("MapClickBenchmark");
+        FastInv inv = new FastInv(54);
+        ItemStack item = new ItemStack(Material.DIAMOND);
+
+        for (int slot = 0; slot < 45; slot++) {
+            inv.setItem(slot, item);
+            this.itemHandlers.put(slot, e -> this.clicks++);
+        }
+
+        for (int i = 0; i < this.globalHandlers; i++) {
+            this.clickHandlers.add(e -> this.clicks++);
+        }
+
+        inv.open(player.getPlayer());
+
+        this.itemClick = player.createClick(13, ClickType.LEFT);
+        this.emptySlotClick = player.createClick(49, ClickType.LEFT);
+        this.playerInventoryClick = player.createClick(70, ClickType.LEFT);
+    }
+
+    @Benchmark
+    public long clickItem() {
+        onInventoryClick(this.itemClick);
+        return this.clicks;
+    }
+
+    @Benchmark
+    public long clickEmptySlot() {
+        onInventoryClick(this.emptySlotClick);
+        return this.clicks;
+    }
+
+    @Benchmark
+    public long clickPlayerInventory() {
+        onInventoryClick(this.playerInventoryClick);
+        return this.clicks;
+    }
+
+    // The listener and FastInv#handleClick of FastInv 3.1.1
+    private void onInventoryClick(InventoryClickEvent e) {
+        if (FastInvManager.getFastInv(e.getInventory()) != null && e.getClickedInventory() != null) {
+            boolean wasCancelled = e.isCancelled();
+            e.setCancelled(true);
+
+            this.clickHandlers.forEach(c -> c.accept(e));
+
+            Consumer<InventoryClickEvent> clickConsumer = this.itemHandlers.get(e.getRawSlot());
+
+            if (clickConsumer != null) {
+                clickConsumer.accept(e);
+            }
+
+            if (!wasCancelled && !e.isCancelled()) {
+                e.setCancelled(false);
+            }
+        }
+    }
+}
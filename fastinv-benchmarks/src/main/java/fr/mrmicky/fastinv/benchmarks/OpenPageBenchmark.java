@@ -0,0 +1,90 @@
+package fr.mrmicky.fastinv.benchmarks;
+
+import fr.mrmicky.fastinv.PaginatedFastInv;
+import fr.mrmicky.fastinv.RenderCache;
+import fr.mrmicky.fastinv.benchmarks.standin.StandInServer;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening the pages of a paginated inventory with a large content, one after another.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OpenPageBenchmark {
+
+    @Param({"1000", "100000"})
+    public int contentSize;
+
+    @Param({"false", "true"})
+    public boolean renderCache;
+
+    @Param({"false", "true"})
+    public boolean sorted;
+
+    private PaginatedFastInv inv;
+    private int lastPage;
+    private int page;
+
+    @Setup
+    public void setup() {
+        StandInServer.install();
+
+        Material[] materials = {Material.STONE, Material.DIRT, Material.DIAMOND, Material.GOLD_INGOT};
+        List<ItemStack> content = new ArrayList<>(this.contentSize);
+
+        for (int i = 0; i < this.contentSize; i++) {
+            content.add(new ItemStack(materials[i % materials.length], 1 + i % 64));
+        }
+
+        this.inv = new PaginatedFastInv(54);
+        this.inv.previousPageItem(45, page -> new ItemStack(Material.ARROW, page));
+        this.inv.nextPageItem(53, page -> new ItemStack(Material.ARROW, page));
+        this.inv.setContent(content);
+
+        if (this.renderCache) {
+            this.inv.setRenderCache(RenderCache.ofSize(1024));
+        }
+
+        if (this.sorted) {
+            this.inv.setContentOrder(Comparator.comparingInt(ItemStack::getAmount));
+        }
+
+        this.lastPage = this.inv.lastPage();
+    }
+
+    @Benchmark
+    public int openNextPage() {
+        this.page = this.page % this.lastPage + 1;
+        this.inv.openPage(this.page);
+        return this.inv.currentPage();
+    }
+
+    @Benchmark
+    public int reopenFirstPages() {
+        // Only the first pages, to measure the render cache hits
+        this.page = this.page % 4 + 1;
+        this.inv.openPage(this.page);
+        return this.inv.currentPage();
+    }
+}
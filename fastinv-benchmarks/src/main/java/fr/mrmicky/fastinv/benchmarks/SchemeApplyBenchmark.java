@@ -0,0 +1,69 @@
+package fr.mrmicky.fastinv.benchmarks;
+
+import fr.mrmicky.fastinv.FastInv;
+import fr.mrmicky.fastinv.InventoryScheme;
+import fr.mrmicky.fastinv.benchmarks.standin.StandInServer;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applying a scheme to an inventory, with the cached compiled layout or compiling it each time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SchemeApplyBenchmark {
+
+    private InventoryScheme scheme;
+    private FastInv inv;
+    private ItemStack border;
+
+    @Setup
+    public void setup() {
+        StandInServer.install();
+
+        this.border = new ItemStack(Material.BLACK_STAINED_GLASS_PANE);
+        this.inv = new FastInv(54);
+        this.scheme = new InventoryScheme()
+                .mask("111111111")
+                .mask("1 22222 1")
+                .mask("1 23332 1")
+                .mask("1 22222 1")
+                .mask("1       1")
+                .mask("1114 5111")
+                .bindItem('1', this.border)
+                .bindItem('2', new ItemStack(Material.GRAY_STAINED_GLASS_PANE), e -> e.setCancelled(true))
+                .bindItem('3', new ItemStack(Material.DIAMOND), e -> e.getWhoClicked().closeInventory())
+                .bindItem('4', new ItemStack(Material.ARROW))
+                .bindItem('5', new ItemStack(Material.BARRIER));
+    }
+
+    @Benchmark
+    public FastInv applyCompiled() {
+        this.scheme.apply(this.inv);
+        return this.inv;
+    }
+
+    @Benchmark
+    public FastInv compileAndApply() {
+        // Binding an item invalidates the compiled layout
+        this.scheme.bindItem('1', this.border);
+        this.scheme.apply(this.inv);
+        return this.inv;
+    }
+}
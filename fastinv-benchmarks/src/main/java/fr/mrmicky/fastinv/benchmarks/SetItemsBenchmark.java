@@ -0,0 +1,68 @@
+package fr.mrmicky.fastinv.benchmarks;
+
+import fr.mrmicky.fastinv.FastInv;
+import fr.mrmicky.fastinv.benchmarks.standin.StandInServer;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling a range of slots, with items changing each time or always the same,
+ * directly or with a batched edit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SetItemsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean skipUnchangedItems;
+
+    @Param({"9", "54"})
+    public int slots;
+
+    private FastInv inv;
+    private ItemStack[] items;
+    private int next;
+
+    @Setup
+    public void setup() {
+        StandInServer.install();
+
+        this.inv = new FastInv(54);
+        this.inv.setSkipUnchangedItems(this.skipUnchangedItems);
+        this.items = new ItemStack[]{new ItemStack(Material.STONE), new ItemStack(Material.DIRT)};
+    }
+
+    @Benchmark
+    public void setItemsChanged() {
+        this.inv.setItems(0, this.slots, this.items[this.next++ & 1]);
+    }
+
+    @Benchmark
+    public void setItemsUnchanged() {
+        this.inv.setItems(0, this.slots, this.items[0]);
+    }
+
+    @Benchmark
+    public void editItemsChanged() {
+        ItemStack item = this.items[this.next++ & 1];
+
+        this.inv.edit(editor -> editor.setItems(0, this.slots, item, null));
+    }
+}
@@ -0,0 +1,82 @@
+package fr.mrmicky.fastinv.benchmarks.standin;
+
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dispatch of the events to the {@link EventHandler} methods of the registered listeners,
+ * by priority like Bukkit. The handlers of each event class are resolved once and cached.
+ */
+final class StandInEventBus {
+
+    private final List<Handler> handlers = new ArrayList<>();
+    private final Map<Class<?>, Handler[]> handlersByEvent = new ConcurrentHashMap<>();
+    private final Logger logger;
+
+    StandInEventBus(Logger logger) {
+        this.logger = logger;
+    }
+
+    synchronized void register(Listener listener) {
+        for (Method method : listener.getClass().getMethods()) {
+            EventHandler annotation = method.getAnnotation(EventHandler.class);
+
+            if (annotation != null && method.getParameterCount() == 1 && Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                method.setAccessible(true);
+                this.handlers.add(new Handler(listener, method, annotation));
+            }
+        }
+
+        this.handlers.sort(Comparator.comparingInt(handler -> handler.annotation.priority().ordinal()));
+        this.handlersByEvent.clear();
+    }
+
+    void call(Event event) {
+        Handler[] eventHandlers = this.handlersByEvent.computeIfAbsent(event.getClass(), this::resolve);
+
+        for (Handler handler : eventHandlers) {
+            if (handler.annotation.ignoreCancelled() && event instanceof Cancellable && ((Cancellable) event).isCancelled()) {
+                continue;
+            }
+
+            try {
+                handler.method.invoke(handler.listener, event);
+            } catch (InvocationTargetException e) {
+                this.logger.log(Level.SEVERE, "Could not pass event " + event.getEventName() + " to " + handler.listener, e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private synchronized Handler[] resolve(Class<?> eventClass) {
+        return this.handlers.stream()
+                .filter(handler -> handler.method.getParameterTypes()[0].isAssignableFrom(eventClass))
+                .toArray(Handler[]::new);
+    }
+
+    private static final class Handler {
+
+        private final Listener listener;
+        private final Method method;
+        private final EventHandler annotation;
+
+        private Handler(Listener listener, Method method, EventHandler annotation) {
+            this.listener = listener;
+            this.method = method;
+            this.annotation = annotation;
+        }
+    }
+}
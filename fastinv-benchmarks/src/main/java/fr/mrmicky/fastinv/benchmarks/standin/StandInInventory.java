@@ -0,0 +1,405 @@
+package fr.mrmicky.fastinv.benchmarks.standin;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * An in-memory inventory. Like a server inventory, it stores a copy of the items set in it.
+ * <p>
+ * It is a plain class rather than a proxy, as it is on the hot path of every FastInv lookup
+ * and click: a proxy would allocate for each call and add its own cost to the measurements.
+ * The methods missing from some API versions, like {@code isEmpty()}, are not annotated with {@code @Override}.
+ */
+class StandInInventory implements Inventory {
+
+    private final List<HumanEntity> viewers = new ArrayList<>();
+    private final InventoryHolder holder;
+    private final InventoryType type;
+    private final ItemStack[] contents;
+    private final String title;
+    private int maxStackSize = 64;
+
+    StandInInventory(InventoryHolder holder, InventoryType type, int size, String title) {
+        this.holder = holder;
+        this.type = type;
+        this.contents = new ItemStack[size];
+        this.title = title;
+    }
+
+    static StandInInventory of(Inventory inventory) {
+        return (StandInInventory) inventory;
+    }
+
+    String getTitle() {
+        return this.title;
+    }
+
+    void addViewer(HumanEntity viewer) {
+        this.viewers.add(viewer);
+    }
+
+    void removeViewer(HumanEntity viewer) {
+        this.viewers.remove(viewer);
+    }
+
+    /**
+     * Get the number of slots used by {@link #getStorageContents()} and {@link #addItem(ItemStack...)}.
+     *
+     * @return the number of storage slots
+     */
+    int getStorageSize() {
+        return this.contents.length;
+    }
+
+    @Override
+    public int getSize() {
+        return this.contents.length;
+    }
+
+    @Override
+    public int getMaxStackSize() {
+        return this.maxStackSize;
+    }
+
+    @Override
+    public void setMaxStackSize(int size) {
+        this.maxStackSize = size;
+    }
+
+    @Override
+    public ItemStack getItem(int index) {
+        return this.contents[index];
+    }
+
+    @Override
+    public void setItem(int index, ItemStack item) {
+        this.contents[index] = copy(item);
+    }
+
+    @Override
+    public HashMap<Integer, ItemStack> addItem(ItemStack... items) {
+        HashMap<Integer, ItemStack> leftover = new HashMap<>();
+
+        // Items are not merged with similar stacks, each item takes an empty slot
+        for (int i = 0; i < items.length; i++) {
+            int slot = firstEmpty();
+
+            if (slot < 0) {
+                leftover.put(i, items[i]);
+            } else {
+                this.contents[slot] = copy(items[i]);
+            }
+        }
+
+        return leftover;
+    }
+
+    @Override
+    public HashMap<Integer, ItemStack> removeItem(ItemStack... items) {
+        HashMap<Integer, ItemStack> leftover = new HashMap<>();
+
+        for (int i = 0; i < items.length; i++) {
+            int slot = first(items[i]);
+
+            if (slot < 0) {
+                leftover.put(i, items[i]);
+            } else {
+                this.contents[slot] = null;
+            }
+        }
+
+        return leftover;
+    }
+
+    @Override
+    public ItemStack[] getContents() {
+        return this.contents.clone();
+    }
+
+    @Override
+    public void setContents(ItemStack[] items) {
+        setContents(items, this.contents.length);
+    }
+
+    @Override
+    public ItemStack[] getStorageContents() {
+        return Arrays.copyOf(this.contents, getStorageSize());
+    }
+
+    @Override
+    public void setStorageContents(ItemStack[] items) {
+        setContents(items, getStorageSize());
+    }
+
+    @Override
+    public boolean contains(Material material) {
+        return first(material) >= 0;
+    }
+
+    @Override
+    public boolean contains(ItemStack item) {
+        return first(item) >= 0;
+    }
+
+    @Override
+    public boolean contains(Material material, int amount) {
+        int found = 0;
+
+        for (ItemStack content : this.contents) {
+            if (content != null && content.getType() == material) {
+                found += content.getAmount();
+            }
+        }
+
+        return found >= amount;
+    }
+
+    @Override
+    public boolean contains(ItemStack item, int amount) {
+        int found = 0;
+
+        for (ItemStack content : this.contents) {
+            if (content != null && content.equals(item)) {
+                found++;
+            }
+        }
+
+        return found >= amount;
+    }
+
+    @Override
+    public boolean containsAtLeast(ItemStack item, int amount) {
+        int found = 0;
+
+        for (ItemStack content : this.contents) {
+            if (content != null && content.isSimilar(item)) {
+                found += content.getAmount();
+            }
+        }
+
+        return found >= amount;
+    }
+
+    @Override
+    public HashMap<Integer, ? extends ItemStack> all(Material material) {
+        HashMap<Integer, ItemStack> found = new HashMap<>();
+
+        for (int i = 0; i < this.contents.length; i++) {
+            if (this.contents[i] != null && this.contents[i].getType() == material) {
+                found.put(i, this.contents[i]);
+            }
+        }
+
+        return found;
+    }
+
+    @Override
+    public HashMap<Integer, ? extends ItemStack> all(ItemStack item) {
+        HashMap<Integer, ItemStack> found = new HashMap<>();
+
+        for (int i = 0; i < this.contents.length; i++) {
+            if (this.contents[i] != null && this.contents[i].equals(item)) {
+                found.put(i, this.contents[i]);
+            }
+        }
+
+        return found;
+    }
+
+    @Override
+    public int first(Material material) {
+        for (int i = 0; i < this.contents.length; i++) {
+            if (this.contents[i] != null && this.contents[i].getType() == material) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int first(ItemStack item) {
+        for (int i = 0; i < this.contents.length; i++) {
+            if (this.contents[i] != null && this.contents[i].equals(item)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int firstEmpty() {
+        for (int i = 0; i < getStorageSize(); i++) {
+            if (this.contents[i] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isEmpty() {
+        for (ItemStack item : this.contents) {
+            if (item != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void remove(Material material) {
+        for (int i = 0; i < this.contents.length; i++) {
+            if (this.contents[i] != null && this.contents[i].getType() == material) {
+                this.contents[i] = null;
+            }
+        }
+    }
+
+    @Override
+    public void remove(ItemStack item) {
+        for (int i = 0; i < this.contents.length; i++) {
+            if (this.contents[i] != null && this.contents[i].equals(item)) {
+                this.contents[i] = null;
+            }
+        }
+    }
+
+    @Override
+    public void clear(int index) {
+        this.contents[index] = null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.contents, null);
+    }
+
+    @Override
+    public List<HumanEntity> getViewers() {
+        return new ArrayList<>(this.viewers);
+    }
+
+    @Override
+    public InventoryType getType() {
+        return this.type;
+    }
+
+    @Override
+    public InventoryHolder getHolder() {
+        return this.holder;
+    }
+
+    @Override
+    public ListIterator<ItemStack> iterator() {
+        return iterator(0);
+    }
+
+    @Override
+    public ListIterator<ItemStack> iterator(int index) {
+        return new ContentsIterator(index < 0 ? this.contents.length + index + 1 : index);
+    }
+
+    @Override
+    public Location getLocation() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "StandInInventory{type=" + this.type + ", size=" + this.contents.length + ", title=" + this.title + '}';
+    }
+
+    private void setContents(ItemStack[] items, int size) {
+        Objects.requireNonNull(items, "items");
+
+        if (items.length > size) {
+            throw new IllegalArgumentException("Invalid inventory size; expected " + size + " or less");
+        }
+
+        for (int i = 0; i < size; i++) {
+            this.contents[i] = i < items.length ? copy(items[i]) : null;
+        }
+    }
+
+    private static ItemStack copy(ItemStack item) {
+        return item == null || item.getType() == Material.AIR ? null : item.clone();
+    }
+
+    private final class ContentsIterator implements ListIterator<ItemStack> {
+
+        private int next;
+        private int last = -1;
+
+        private ContentsIterator(int next) {
+            this.next = next;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next < getSize();
+        }
+
+        @Override
+        public ItemStack next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.last = this.next++;
+            return getItem(this.last);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return this.next > 0;
+        }
+
+        @Override
+        public ItemStack previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            this.last = --this.next;
+            return getItem(this.last);
+        }
+
+        @Override
+        public int nextIndex() {
+            return this.next;
+        }
+
+        @Override
+        public int previousIndex() {
+            return this.next - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Can't change the size of an inventory");
+        }
+
+        @Override
+        public void set(ItemStack item) {
+            if (this.last < 0) {
+                throw new IllegalStateException("No current item");
+            }
+            setItem(this.last, item);
+        }
+
+        @Override
+        public void add(ItemStack item) {
+            throw new UnsupportedOperationException("Can't change the size of an inventory");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package fr.mrmicky.fastinv.benchmarks.standin;
+
+import org.bukkit.Color;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * The item factory of the stand-in server, creating and comparing {@link StandInItemMeta}.
+ * <p>
+ * {@link ItemStack#isSimilar(ItemStack)} and {@link ItemStack#hasItemMeta()} call this factory
+ * for every comparison, so it is a plain class rather than a proxy to not allocate on these calls.
+ */
+final class StandInItemFactory implements ItemFactory {
+
+    private static final Color DEFAULT_LEATHER_COLOR = Color.fromRGB(0xA06540);
+
+    @Override
+    public ItemMeta getItemMeta(Material material) {
+        return material == Material.AIR ? null : StandInItemMeta.create();
+    }
+
+    @Override
+    public boolean isApplicable(ItemMeta meta, ItemStack stack) {
+        return stack != null && isApplicable(meta, stack.getType());
+    }
+
+    @Override
+    public boolean isApplicable(ItemMeta meta, Material material) {
+        return material != Material.AIR;
+    }
+
+    @Override
+    public boolean equals(ItemMeta meta1, ItemMeta meta2) {
+        return StandInItemMeta.equals(meta1, meta2);
+    }
+
+    @Override
+    public ItemMeta asMetaFor(ItemMeta meta, ItemStack stack) {
+        return meta;
+    }
+
+    @Override
+    public ItemMeta asMetaFor(ItemMeta meta, Material material) {
+        return meta;
+    }
+
+    @Override
+    public Color getDefaultLeatherColor() {
+        return DEFAULT_LEATHER_COLOR;
+    }
+
+    @Deprecated
+    public Material updateMaterial(ItemMeta meta, Material material) {
+        return material;
+    }
+}
@@ -0,0 +1,152 @@
+package fr.mrmicky.fastinv.benchmarks.standin;
+
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An in-memory item meta, with the display name, lore, enchantments, flags and damage of an item.
+ * Like the server implementation, it compares by value and is copied when read from an item.
+ */
+final class StandInItemMeta implements InvocationHandler {
+
+    private static final Class<?>[] INTERFACES = {ItemMeta.class, Damageable.class};
+
+    private String displayName;
+    private List<String> lore;
+    private final Map<Enchantment, Integer> enchants = new LinkedHashMap<>();
+    private final EnumSet<ItemFlag> flags = EnumSet.noneOf(ItemFlag.class);
+    private int damage;
+    private boolean unbreakable;
+
+    static ItemMeta create() {
+        return (ItemMeta) Proxy.newProxyInstance(StandInItemMeta.class.getClassLoader(), INTERFACES, new StandInItemMeta());
+    }
+
+    /**
+     * Compare two item metas like the server, where a null meta is equal to an empty one.
+     */
+    static boolean equals(ItemMeta meta1, ItemMeta meta2) {
+        StandInItemMeta first = of(meta1);
+        StandInItemMeta second = of(meta2);
+
+        if (first == null || second == null) {
+            return (first == null || first.isEmpty()) && (second == null || second.isEmpty());
+        }
+
+        return first.sameAs(second);
+    }
+
+    private static StandInItemMeta of(Object meta) {
+        return meta != null ? (StandInItemMeta) Proxy.getInvocationHandler(meta) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "hasDisplayName":
+                return this.displayName != null;
+            case "getDisplayName":
+                return this.displayName;
+            case "setDisplayName":
+                this.displayName = (String) args[0];
+                return null;
+            case "hasLore":
+                return this.lore != null;
+            case "getLore":
+                return this.lore != null ? new ArrayList<>(this.lore) : null;
+            case "setLore":
+                this.lore = args[0] != null ? new ArrayList<>((List<String>) args[0]) : null;
+                return null;
+            case "hasEnchants":
+                return !this.enchants.isEmpty();
+            case "hasEnchant":
+                return this.enchants.containsKey(args[0]);
+            case "getEnchantLevel":
+                return this.enchants.getOrDefault(args[0], 0);
+            case "getEnchants":
+                return Collections.unmodifiableMap(new LinkedHashMap<>(this.enchants));
+            case "addEnchant":
+                return !Objects.equals(this.enchants.put((Enchantment) args[0], (Integer) args[1]), args[1]);
+            case "removeEnchant":
+                return this.enchants.remove(args[0]) != null;
+            case "hasConflictingEnchant":
+                return false;
+            case "addItemFlags":
+                this.flags.addAll(Arrays.asList((ItemFlag[]) args[0]));
+                return null;
+            case "removeItemFlags":
+                this.flags.removeAll(Arrays.asList((ItemFlag[]) args[0]));
+                return null;
+            case "getItemFlags":
+                return EnumSet.copyOf(this.flags);
+            case "hasItemFlag":
+                return this.flags.contains(args[0]);
+            case "hasDamage":
+                return this.damage > 0;
+            case "getDamage":
+                return this.damage;
+            case "setDamage":
+                this.damage = (Integer) args[0];
+                return null;
+            case "isUnbreakable":
+                return this.unbreakable;
+            case "setUnbreakable":
+                this.unbreakable = (Boolean) args[0];
+                return null;
+            case "hasLocalizedName":
+            case "hasCustomModelData":
+            case "hasAttributeModifiers":
+                return false;
+            case "clone":
+                return copy();
+            case "equals":
+                return args[0] != null && Proxy.isProxyClass(args[0].getClass())
+                        && Proxy.getInvocationHandler(args[0]) instanceof StandInItemMeta && sameAs(of(args[0]));
+            case "hashCode":
+                return Objects.hash(this.displayName, this.lore, this.enchants, this.flags, this.damage, this.unbreakable);
+            case "toString":
+                return "StandInItemMeta{name=" + this.displayName + ", lore=" + this.lore + ", enchants=" + this.enchants + ", flags=" + this.flags + '}';
+            default:
+                throw new UnsupportedOperationException("StandInItemMeta doesn't support " + method);
+        }
+    }
+
+    private ItemMeta copy() {
+        ItemMeta meta = create();
+        StandInItemMeta copy = of(meta);
+
+        copy.displayName = this.displayName;
+        copy.lore = this.lore != null ? new ArrayList<>(this.lore) : null;
+        copy.enchants.putAll(this.enchants);
+        copy.flags.addAll(this.flags);
+        copy.damage = this.damage;
+        copy.unbreakable = this.unbreakable;
+        return meta;
+    }
+
+    private boolean isEmpty() {
+        return this.displayName == null && this.lore == null && this.enchants.isEmpty()
+                && this.flags.isEmpty() && this.damage == 0 && !this.unbreakable;
+    }
+
+    private boolean sameAs(StandInItemMeta other) {
+        return Objects.equals(this.displayName, other.displayName) && Objects.equals(this.lore, other.lore)
+                && this.enchants.equals(other.enchants) && this.flags.equals(other.flags)
+                && this.damage == other.damage && this.unbreakable == other.unbreakable;
+    }
+}
@@ -0,0 +1,181 @@
+package fr.mrmicky.fastinv.benchmarks.standin;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * A virtual player, opening, clicking and closing inventories like a real client.
+ * Opening and closing inventories call the same events as a server.
+ * <p>
+ * The Bukkit player is a proxy, as the {@link Player} interface has hundreds of methods that change
+ * with each API version. The methods called on each click ({@code getEntityId}, {@code getUniqueId}
+ * and {@code hashCode}) take no arguments and return preallocated values, so they don't allocate.
+ */
+public final class StandInPlayer {
+
+    private final StandInServer server;
+    private final String name;
+    private final UUID uniqueId;
+    private final Integer entityId;
+    private final Integer hashCode;
+    private final Player player;
+    private final Inventory inventory;
+
+    private StandInView view;
+
+    StandInPlayer(StandInServer server, String name, int entityId) {
+        this.server = server;
+        this.name = name;
+        this.entityId = entityId;
+        this.uniqueId = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+        this.player = StandInServer.proxy(Player.class, this::handle);
+        this.hashCode = System.identityHashCode(this.player);
+        this.inventory = new StandInPlayerInventory(this.player);
+    }
+
+    /**
+     * Get the Bukkit player of this virtual player.
+     *
+     * @return the Bukkit player
+     */
+    public Player getPlayer() {
+        return this.player;
+    }
+
+    /**
+     * Get the inventory currently open by this player.
+     *
+     * @return the top inventory of the open view, or null if no inventory is open
+     */
+    public Inventory getOpenInventory() {
+        return this.view != null ? this.view.getTopInventory() : null;
+    }
+
+    /**
+     * Create a click event in the open inventory, without calling it.
+     *
+     * @param rawSlot the raw slot clicked, in the top or bottom inventory
+     * @param click   the click type
+     * @return the click event
+     * @throws IllegalStateException if the player has no inventory open
+     */
+    public InventoryClickEvent createClick(int rawSlot, ClickType click) {
+        if (this.view == null) {
+            throw new IllegalStateException(this.name + " has no inventory open");
+        }
+
+        InventoryType.SlotType slotType = rawSlot < 0 ? InventoryType.SlotType.OUTSIDE : InventoryType.SlotType.CONTAINER;
+
+        return new InventoryClickEvent(this.view, slotType, rawSlot, click, InventoryAction.PICKUP_ALL);
+    }
+
+    /**
+     * Click in the open inventory, calling the click event.
+     *
+     * @param rawSlot the raw slot clicked, in the top or bottom inventory
+     * @param click   the click type
+     * @return the called click event
+     */
+    public InventoryClickEvent click(int rawSlot, ClickType click) {
+        InventoryClickEvent event = createClick(rawSlot, click);
+
+        this.server.callEvent(event);
+        return event;
+    }
+
+    /**
+     * Disconnect this player, closing its open inventory.
+     */
+    public void quit() {
+        closeInventory();
+
+        this.server.callEvent(new PlayerQuitEvent(this.player, this.name + " left the game"));
+        this.server.removePlayer(this);
+    }
+
+    private InventoryView openInventory(Inventory inventory) {
+        closeInventory();
+
+        StandInView newView = new StandInView(this.player, inventory, this.inventory);
+        InventoryOpenEvent event = new InventoryOpenEvent(newView);
+
+        this.server.callEvent(event);
+
+        if (event.isCancelled()) {
+            return null;
+        }
+
+        this.view = newView;
+        StandInInventory.of(inventory).addViewer(this.player);
+        return newView;
+    }
+
+    private void closeInventory() {
+        StandInView closedView = this.view;
+
+        if (closedView == null) {
+            return;
+        }
+
+        // Like on a server, the player is still a viewer of the inventory during the close event
+        this.server.callEvent(new InventoryCloseEvent(closedView));
+
+        StandInInventory.of(closedView.getTopInventory()).removeViewer(this.player);
+
+        if (this.view == closedView) {
+            this.view = null;
+        }
+    }
+
+    private Object handle(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getName":
+            case "getDisplayName":
+                return this.name;
+            case "getUniqueId":
+                return this.uniqueId;
+            case "getEntityId":
+                return this.entityId;
+            case "hashCode":
+                return this.hashCode;
+            case "getInventory":
+                return this.inventory;
+            case "getOpenInventory":
+                return this.view;
+            case "openInventory":
+                if (args[0] instanceof Inventory) {
+                    return openInventory((Inventory) args[0]);
+                }
+                break;
+            case "closeInventory":
+                closeInventory();
+                return null;
+            case "updateInventory":
+            case "sendMessage":
+                return null;
+            case "isOnline":
+            case "isValid":
+                return true;
+            case "isOp":
+                return false;
+            case "hasPermission":
+                return true;
+            default:
+                break;
+        }
+
+        return StandInServer.handleObject(proxy, method, args, "StandInPlayer[" + this.name + "]");
+    }
+}
@@ -0,0 +1,175 @@
+package fr.mrmicky.fastinv.benchmarks.standin;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.Arrays;
+
+/**
+ * The inventory of a virtual player, laid out like on a server: 36 storage slots
+ * (the hotbar first), then the boots, leggings, chestplate and helmet, and the off hand.
+ */
+final class StandInPlayerInventory extends StandInInventory implements PlayerInventory {
+
+    private static final int STORAGE_SIZE = 36;
+    private static final int ARMOR_SLOT = 36;
+    private static final int OFF_HAND_SLOT = 40;
+
+    private final HumanEntity player;
+    private int heldItemSlot;
+
+    StandInPlayerInventory(HumanEntity player) {
+        super(player, InventoryType.PLAYER, OFF_HAND_SLOT + 1, "Inventory");
+
+        this.player = player;
+    }
+
+    @Override
+    int getStorageSize() {
+        return STORAGE_SIZE;
+    }
+
+    @Override
+    public ItemStack[] getArmorContents() {
+        return Arrays.copyOfRange(getContents(), ARMOR_SLOT, OFF_HAND_SLOT);
+    }
+
+    @Override
+    public ItemStack[] getExtraContents() {
+        return new ItemStack[]{getItemInOffHand()};
+    }
+
+    @Override
+    public ItemStack getHelmet() {
+        return getItem(ARMOR_SLOT + 3);
+    }
+
+    @Override
+    public ItemStack getChestplate() {
+        return getItem(ARMOR_SLOT + 2);
+    }
+
+    @Override
+    public ItemStack getLeggings() {
+        return getItem(ARMOR_SLOT + 1);
+    }
+
+    @Override
+    public ItemStack getBoots() {
+        return getItem(ARMOR_SLOT);
+    }
+
+    @Override
+    public void setItem(EquipmentSlot slot, ItemStack item) {
+        setItem(toIndex(slot), item);
+    }
+
+    public ItemStack getItem(EquipmentSlot slot) {
+        return getItem(toIndex(slot));
+    }
+
+    @Override
+    public void setArmorContents(ItemStack[] items) {
+        for (int i = 0; i < 4; i++) {
+            setItem(ARMOR_SLOT + i, items != null && i < items.length ? items[i] : null);
+        }
+    }
+
+    @Override
+    public void setExtraContents(ItemStack[] items) {
+        setItemInOffHand(items != null && items.length > 0 ? items[0] : null);
+    }
+
+    @Override
+    public void setHelmet(ItemStack helmet) {
+        setItem(ARMOR_SLOT + 3, helmet);
+    }
+
+    @Override
+    public void setChestplate(ItemStack chestplate) {
+        setItem(ARMOR_SLOT + 2, chestplate);
+    }
+
+    @Override
+    public void setLeggings(ItemStack leggings) {
+        setItem(ARMOR_SLOT + 1, leggings);
+    }
+
+    @Override
+    public void setBoots(ItemStack boots) {
+        setItem(ARMOR_SLOT, boots);
+    }
+
+    @Override
+    public ItemStack getItemInMainHand() {
+        return getItem(this.heldItemSlot);
+    }
+
+    @Override
+    public void setItemInMainHand(ItemStack item) {
+        setItem(this.heldItemSlot, item);
+    }
+
+    @Override
+    public ItemStack getItemInOffHand() {
+        return getItem(OFF_HAND_SLOT);
+    }
+
+    @Override
+    public void setItemInOffHand(ItemStack item) {
+        setItem(OFF_HAND_SLOT, item);
+    }
+
+    @Override
+    @Deprecated
+    public ItemStack getItemInHand() {
+        return getItemInMainHand();
+    }
+
+    @Override
+    @Deprecated
+    public void setItemInHand(ItemStack stack) {
+        setItemInMainHand(stack);
+    }
+
+    @Override
+    public int getHeldItemSlot() {
+        return this.heldItemSlot;
+    }
+
+    @Override
+    public void setHeldItemSlot(int slot) {
+        if (slot < 0 || slot > 8) {
+            throw new IllegalArgumentException("Slot is not between 0 and 8 inclusive");
+        }
+
+        this.heldItemSlot = slot;
+    }
+
+    @Override
+    public HumanEntity getHolder() {
+        return this.player;
+    }
+
+    private int toIndex(EquipmentSlot slot) {
+        switch (slot) {
+            case HAND:
+                return this.heldItemSlot;
+            case OFF_HAND:
+                return OFF_HAND_SLOT;
+            case FEET:
+                return ARMOR_SLOT;
+            case LEGS:
+                return ARMOR_SLOT + 1;
+            case CHEST:
+                return ARMOR_SLOT + 2;
+            case HEAD:
+                return ARMOR_SLOT + 3;
+            default:
+                throw new IllegalArgumentException("Unknown equipment slot: " + slot);
+        }
+    }
+}
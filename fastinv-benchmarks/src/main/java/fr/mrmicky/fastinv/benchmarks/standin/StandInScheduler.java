@@ -0,0 +1,226 @@
+package fr.mrmicky.fastinv.benchmarks.standin;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A Bukkit scheduler driven by {@link #tick()}: synchronous tasks run on the thread calling it,
+ * and asynchronous tasks run on a small daemon thread pool.
+ * Tasks can be scheduled from any thread, and are picked up on the next tick.
+ */
+public final class StandInScheduler {
+
+    private static final ThreadLocal<Boolean> ASYNC_THREAD = ThreadLocal.withInitial(() -> false);
+
+    private final Queue<Task> submitted = new ConcurrentLinkedQueue<>();
+    private final List<Task> tasks = new ArrayList<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final ExecutorService asyncExecutor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(() -> {
+            ASYNC_THREAD.set(true);
+            runnable.run();
+        }, "StandInScheduler async");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final BukkitScheduler scheduler = StandInServer.proxy(BukkitScheduler.class, this::handle);
+    private final Logger logger;
+
+    private volatile long currentTick;
+
+    StandInScheduler(Logger logger) {
+        this.logger = logger;
+    }
+
+    static boolean isAsyncThread() {
+        return ASYNC_THREAD.get();
+    }
+
+    /**
+     * Get the number of the current tick.
+     *
+     * @return the number of ticks run
+     */
+    public long getCurrentTick() {
+        return this.currentTick;
+    }
+
+    /**
+     * Get the number of pending synchronous tasks.
+     *
+     * @return the number of scheduled tasks
+     */
+    public int getPendingTasks() {
+        return this.tasks.size() + this.submitted.size();
+    }
+
+    BukkitScheduler getBukkitScheduler() {
+        return this.scheduler;
+    }
+
+    int tick() {
+        long tick = ++this.currentTick;
+        int run = 0;
+        Task task;
+
+        while ((task = this.submitted.poll()) != null) {
+            task.nextTick = tick + task.delay;
+            this.tasks.add(task);
+        }
+
+        int size = 0;
+
+        // Index loop, as tasks scheduled while running the tasks are only added on the next tick
+        for (int i = 0; i < this.tasks.size(); i++) {
+            task = this.tasks.get(i);
+
+            if (!task.cancelled && task.nextTick <= tick) {
+                run++;
+                task.run();
+
+                if (task.period > 0) {
+                    task.nextTick = tick + task.period;
+                } else {
+                    task.cancelled = true;
+                }
+            }
+
+            if (!task.cancelled) {
+                this.tasks.set(size++, task);
+            }
+        }
+
+        this.tasks.subList(size, this.tasks.size()).clear();
+        return run;
+    }
+
+    private Object handle(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+
+        switch (name) {
+            case "runTask":
+            case "runTaskAsynchronously":
+                return schedule((Plugin) args[0], args[1], 0, -1, name.endsWith("Asynchronously"));
+            case "runTaskLater":
+            case "runTaskLaterAsynchronously":
+                return schedule((Plugin) args[0], args[1], (Long) args[2], -1, name.endsWith("Asynchronously"));
+            case "runTaskTimer":
+            case "runTaskTimerAsynchronously":
+                return schedule((Plugin) args[0], args[1], (Long) args[2], (Long) args[3], name.endsWith("Asynchronously"));
+            case "scheduleSyncDelayedTask":
+                return schedule((Plugin) args[0], args[1], args.length > 2 ? (Long) args[2] : 0, -1, false).getTaskId();
+            case "scheduleSyncRepeatingTask":
+                return schedule((Plugin) args[0], args[1], (Long) args[2], (Long) args[3], false).getTaskId();
+            case "cancelTask":
+                int id = (Integer) args[0];
+                this.submitted.forEach(task -> task.cancelIf(id));
+                this.tasks.forEach(task -> task.cancelIf(id));
+                return null;
+            case "isCurrentlyRunning":
+            case "isQueued":
+                return false;
+            default:
+                return StandInServer.handleObject(proxy, method, args, "StandInScheduler");
+        }
+    }
+
+    private Task schedule(Plugin plugin, Object action, long delay, long period, boolean async) {
+        Task task = new Task(plugin, action, Math.max(delay, 0), period, async);
+
+        // Asynchronous tasks without delay start immediately, like on a real server
+        if (async && delay <= 0 && period <= 0) {
+            this.asyncExecutor.execute(task::runNow);
+        } else {
+            this.submitted.add(task);
+        }
+
+        return task;
+    }
+
+    private final class Task implements BukkitTask {
+
+        private final int id = StandInScheduler.this.nextId.getAndIncrement();
+        private final Plugin plugin;
+        private final Object action;
+        private final long delay;
+        private final long period;
+        private final boolean async;
+
+        private long nextTick;
+        private volatile boolean cancelled;
+
+        private Task(Plugin plugin, Object action, long delay, long period, boolean async) {
+            this.plugin = plugin;
+            this.action = action;
+            this.delay = delay;
+            this.period = period;
+            this.async = async;
+        }
+
+        private void run() {
+            if (this.async) {
+                StandInScheduler.this.asyncExecutor.execute(this::runNow);
+            } else {
+                runNow();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void runNow() {
+            try {
+                if (this.action instanceof Runnable) {
+                    ((Runnable) this.action).run();
+                } else {
+                    ((Consumer<BukkitTask>) this.action).accept(this);
+                }
+            } catch (RuntimeException e) {
+                StandInScheduler.this.logger.log(Level.WARNING, "Task #" + this.id + " generated an exception", e);
+            }
+        }
+
+        private void cancelIf(int id) {
+            if (this.id == id) {
+                this.cancelled = true;
+            }
+        }
+
+        @Override
+        public int getTaskId() {
+            return this.id;
+        }
+
+        @Override
+        public Plugin getOwner() {
+            return this.plugin;
+        }
+
+        @Override
+        public boolean isSync() {
+            return !this.async;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package fr.mrmicky.fastinv.benchmarks.standin;
+
+import fr.mrmicky.fastinv.FastInvManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * A lightweight in-memory stand-in for a Bukkit server, with just enough of the Bukkit API
+ * to create, open and click FastInv inventories without a Minecraft server.
+ * <p>
+ * The server has no thread of its own: the thread calling {@link #tick()} acts as the main thread.
+ * It is installed once per JVM with {@link #install()}, which also registers FastInv.
+ */
+public final class StandInServer {
+
+    private static StandInServer instance;
+
+    private final Logger logger = Logger.getLogger("StandInServer");
+    private final StandInScheduler scheduler = new StandInScheduler(this.logger);
+    private final StandInEventBus eventBus = new StandInEventBus(this.logger);
+    private final Map<UUID, StandInPlayer> players = new LinkedHashMap<>();
+    private final ItemFactory itemFactory = new StandInItemFactory();
+
+    private final Server server;
+    private final Plugin plugin;
+    private final PluginManager pluginManager;
+
+    private int nextEntityId = 1;
+
+    private StandInServer() {
+        this.server = proxy(Server.class, this::handleServer);
+        this.plugin = proxy(Plugin.class, this::handlePlugin);
+        this.pluginManager = proxy(PluginManager.class, this::handlePluginManager);
+    }
+
+    /**
+     * Install the stand-in server as the Bukkit server, and register FastInv with a stand-in plugin.
+     * Calling this method again returns the installed server.
+     *
+     * @return the installed server
+     */
+    public static synchronized StandInServer install() {
+        if (instance == null) {
+            StandInServer server = new StandInServer();
+
+            Bukkit.setServer(server.server);
+            FastInvManager.register(server.plugin);
+
+            instance = server;
+        }
+
+        return instance;
+    }
+
+    /**
+     * Run one server tick: all the scheduled tasks due for this tick, on the calling thread.
+     *
+     * @return the number of tasks run
+     */
+    public int tick() {
+        return this.scheduler.tick();
+    }
+
+    /**
+     * Connect a new virtual player.
+     *
+     * @param name the name of the player
+     * @return the new player
+     */
+    public StandInPlayer addPlayer(String name) {
+        StandInPlayer player = new StandInPlayer(this, name, this.nextEntityId++);
+
+        this.players.put(player.getPlayer().getUniqueId(), player);
+        return player;
+    }
+
+    /**
+     * Call an event, like the Bukkit plugin manager does.
+     *
+     * @param event the event to call
+     */
+    public void callEvent(Event event) {
+        this.eventBus.call(event);
+    }
+
+    public Plugin getPlugin() {
+        return this.plugin;
+    }
+
+    public StandInScheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    public Collection<StandInPlayer> getPlayers() {
+        return Collections.unmodifiableCollection(this.players.values());
+    }
+
+    void removePlayer(StandInPlayer player) {
+        this.players.remove(player.getPlayer().getUniqueId());
+    }
+
+    private Object handleServer(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getName":
+                return "StandInServer";
+            case "getVersion":
+                return "in-memory";
+            case "getBukkitVersion":
+                return "1.16.1-R0.1-SNAPSHOT";
+            case "getLogger":
+                return this.logger;
+            case "getScheduler":
+                return this.scheduler.getBukkitScheduler();
+            case "getPluginManager":
+                return this.pluginManager;
+            case "getItemFactory":
+                return this.itemFactory;
+            case "isPrimaryThread":
+                return !StandInScheduler.isAsyncThread();
+            case "getOnlinePlayers":
+                List<Player> online = new ArrayList<>(this.players.size());
+                this.players.values().forEach(player -> online.add(player.getPlayer()));
+                return online;
+            case "getPlayer":
+                if (args[0] instanceof UUID) {
+                    StandInPlayer player = this.players.get(args[0]);
+                    return player != null ? player.getPlayer() : null;
+                }
+                break;
+            case "createInventory":
+                return createInventory(args);
+            default:
+                break;
+        }
+
+        return handleObject(proxy, method, args, "StandInServer");
+    }
+
+    private Inventory createInventory(Object[] args) {
+        InventoryHolder holder = (InventoryHolder) args[0];
+
+        if (args[1] instanceof InventoryType) {
+            InventoryType type = (InventoryType) args[1];
+            String title = args.length > 2 ? (String) args[2] : type.getDefaultTitle();
+
+            return new StandInInventory(holder, type, type.getDefaultSize(), title);
+        }
+
+        int size = (Integer) args[1];
+
+        if (size <= 0 || size % 9 != 0 || size > 54) {
+            throw new IllegalArgumentException("Size for custom inventory must be a multiple of 9 between 9 and 54 slots (got " + size + ")");
+        }
+
+        String title = args.length > 2 ? (String) args[2] : InventoryType.CHEST.getDefaultTitle();
+
+        return new StandInInventory(holder, InventoryType.CHEST, size, title);
+    }
+
+    private Object handlePlugin(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getName":
+                return "FastInvStandIn";
+            case "getLogger":
+                return this.logger;
+            case "getServer":
+                return this.server;
+            case "isEnabled":
+                return true;
+            case "getDataFolder":
+                return new File("target", "stand-in");
+            default:
+                return handleObject(proxy, method, args, "StandInPlugin");
+        }
+    }
+
+    private Object handlePluginManager(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "registerEvents":
+                this.eventBus.register((Listener) args[0]);
+                return null;
+            case "callEvent":
+                this.eventBus.call((Event) args[0]);
+                return null;
+            case "isPluginEnabled":
+                return true;
+            default:
+                return handleObject(proxy, method, args, "StandInPluginManager");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StandInServer.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    /**
+     * Handle the {@link Object} methods of a proxy with identity semantics, and reject any other method.
+     */
+    static Object handleObject(Object proxy, Method method, Object[] args, String name) {
+        switch (method.getName()) {
+            case "equals":
+                return args != null && args.length == 1 && proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return name + '@' + Integer.toHexString(System.identityHashCode(proxy));
+            default:
+                throw new UnsupportedOperationException(name + " doesn't support " + method);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package fr.mrmicky.fastinv.benchmarks.standin;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+
+/**
+ * The view of a player on an open inventory, above its own inventory.
+ */
+final class StandInView extends InventoryView {
+
+    private final HumanEntity player;
+    private final Inventory top;
+    private final Inventory bottom;
+
+    StandInView(HumanEntity player, Inventory top, Inventory bottom) {
+        this.player = player;
+        this.top = top;
+        this.bottom = bottom;
+    }
+
+    @Override
+    public Inventory getTopInventory() {
+        return this.top;
+    }
+
+    @Override
+    public Inventory getBottomInventory() {
+        return this.bottom;
+    }
+
+    @Override
+    public HumanEntity getPlayer() {
+        return this.player;
+    }
+
+    @Override
+    public InventoryType getType() {
+        return this.top.getType();
+    }
+
+    @Override
+    public String getTitle() {
+        return StandInInventory.of(this.top).getTitle();
+    }
+}
@@ -0,0 +1,303 @@
+package fr.mrmicky.fastinv.benchmarks.simulation;
+
+import fr.mrmicky.fastinv.FastInv;
+import fr.mrmicky.fastinv.FastInvManager;
+import fr.mrmicky.fastinv.FastInvMetrics;
+import fr.mrmicky.fastinv.FastInvTemplate;
+import fr.mrmicky.fastinv.PaginatedFastInv;
+import fr.mrmicky.fastinv.benchmarks.standin.StandInPlayer;
+import fr.mrmicky.fastinv.benchmarks.standin.StandInServer;
+import org.bukkit.Material;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Simulates a server full of virtual players opening, paging and clicking FastInv menus,
+ * without a network or a Minecraft server.
+ * <p>
+ * Every action goes through the events handled by {@link FastInvManager.InventoryListener},
+ * and each simulated tick also runs the scheduled tasks, such as the inventory updaters and queued refreshes.
+ * After some warm-up ticks, the time of each tick and the heap usage are reported at a fixed interval,
+ * and summarized at the end with the FastInv metrics of each inventory class.
+ * <p>
+ * The options are given as {@code --name=value} arguments, for example
+ * {@code --players=5000 --ticks=6000 --clicks=2}. The rates are per player and per second (20 ticks).
+ */
+public final class LoadSimulation {
+
+    private static final int TICKS_PER_SECOND = 20;
+    private static final int PREVIOUS_PAGE_SLOT = 45;
+    private static final int NEXT_PAGE_SLOT = 53;
+
+    private final Map<String, String> options;
+
+    private final int playerCount;
+    private final int warmupTicks;
+    private final int ticks;
+    private final int reportInterval;
+    private final double openChance;
+    private final double pageChance;
+    private final double clickChance;
+    private final double closeChance;
+    private final double paginatedShare;
+    private final int contentSize;
+    private final SplittableRandom random;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    private StandInServer server;
+    private FastInvTemplate<PaginatedFastInv> catalog;
+    private long opens;
+    private long pages;
+    private long clicks;
+    private long closes;
+
+    private LoadSimulation(Map<String, String> options) {
+        this.options = options;
+        this.playerCount = intOption("players", 2000);
+        this.warmupTicks = intOption("warmup", 400);
+        this.ticks = intOption("ticks", 2400);
+        this.reportInterval = intOption("report-interval", 200);
+        this.openChance = chanceOption("opens", 0.2);
+        this.pageChance = chanceOption("pages", 0.5);
+        this.clickChance = chanceOption("clicks", 1.0);
+        this.closeChance = chanceOption("closes", 0.1);
+        this.paginatedShare = doubleOption("paginated-share", 0.5);
+        this.contentSize = intOption("content", 500);
+        this.random = new SplittableRandom(intOption("seed", 42));
+
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + options.keySet());
+        }
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Invalid option, expected --name=value: " + arg);
+            }
+
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        new LoadSimulation(options).run();
+    }
+
+    private void run() {
+        this.server = StandInServer.install();
+        this.catalog = FastInvTemplate.of(createCatalog());
+
+        List<StandInPlayer> players = new ArrayList<>(this.playerCount);
+        for (int i = 0; i < this.playerCount; i++) {
+            players.add(this.server.addPlayer("Player" + i));
+        }
+
+        // Let the JIT compile the hot paths before measuring
+        for (int tick = 0; tick < this.warmupTicks; tick++) {
+            runTick(players);
+        }
+
+        this.opens = this.pages = this.clicks = this.closes = 0;
+        FastInvMetrics.setEnabled(true);
+
+        long startHeap = usedHeapAfterGc();
+        long[] tickNanos = new long[this.ticks];
+
+        System.out.printf(Locale.ROOT, "Simulating %d players for %d ticks, heap %.1f MB%n",
+                this.playerCount, this.ticks, toMegabytes(startHeap));
+        System.out.printf(Locale.ROOT, "%8s %10s %10s %10s %8s %10s %10s%n",
+                "tick", "mean ms", "p99 ms", "max ms", "viewers", "refreshes", "heap MB");
+
+        for (int tick = 0; tick < this.ticks; tick++) {
+            long start = System.nanoTime();
+
+            runTick(players);
+
+            tickNanos[tick] = System.nanoTime() - start;
+
+            if ((tick + 1) % this.reportInterval == 0) {
+                long[] interval = Arrays.copyOfRange(tickNanos, tick + 1 - this.reportInterval, tick + 1);
+
+                report(tick + 1, interval);
+            }
+        }
+
+        long endHeap = usedHeapAfterGc();
+
+        players.forEach(StandInPlayer::quit);
+        players.clear();
+        this.server.tick();
+
+        long releasedHeap = usedHeapAfterGc();
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Actions: %d opens, %d page changes, %d clicks, %d closes%n",
+                this.opens, this.pages, this.clicks, this.closes);
+        System.out.printf(Locale.ROOT, "Tick time: mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                toMillis(mean(tickNanos)), toMillis(percentile(tickNanos, 0.5)),
+                toMillis(percentile(tickNanos, 0.99)), toMillis(max(tickNanos)));
+        System.out.printf(Locale.ROOT, "Heap after GC: %.1f MB at start, %.1f MB at end (%+.1f MB), %.1f MB after all players left (%+.1f MB)%n",
+                toMegabytes(startHeap), toMegabytes(endHeap), toMegabytes(endHeap - startHeap),
+                toMegabytes(releasedHeap), toMegabytes(releasedHeap - startHeap));
+        System.out.printf(Locale.ROOT, "Viewers left: %d, updating inventories left: %d, pending refreshes: %d%n",
+                FastInvManager.getViewerCount(), FastInvManager.getUpdatingInventories(), FastInvManager.getPendingRefreshes());
+
+        System.out.println();
+        for (FastInvMetrics.Snapshot snapshot : FastInvMetrics.snapshot()) {
+            System.out.printf(Locale.ROOT, "%-60s %-6s %10d calls, mean %8.1f us, p99 %8.1f us, max %8.1f us%n",
+                    snapshot.getInventoryClass(), snapshot.getOperation(), snapshot.getCount(),
+                    snapshot.getMeanNanos() / 1000.0, snapshot.getP99Nanos() / 1000.0, snapshot.getMaxNanos() / 1000.0);
+        }
+    }
+
+    private void runTick(List<StandInPlayer> players) {
+        for (StandInPlayer player : players) {
+            simulate(player);
+        }
+
+        this.server.tick();
+    }
+
+    private void simulate(StandInPlayer player) {
+        Inventory open = player.getOpenInventory();
+
+        if (open == null) {
+            if (this.random.nextDouble() < this.openChance) {
+                openMenu(player);
+                this.opens++;
+            }
+            return;
+        }
+
+        FastInv inv = FastInvManager.getFastInv(open);
+
+        if (this.random.nextDouble() < this.closeChance) {
+            player.getPlayer().closeInventory();
+            this.closes++;
+        } else if (inv instanceof PaginatedFastInv && this.random.nextDouble() < this.pageChance) {
+            PaginatedFastInv paginated = (PaginatedFastInv) inv;
+
+            player.click(paginated.isLastPage() ? PREVIOUS_PAGE_SLOT : NEXT_PAGE_SLOT, ClickType.LEFT);
+            this.pages++;
+        } else if (this.random.nextDouble() < this.clickChance) {
+            // Some clicks land in the player inventory, below the top inventory
+            player.click(this.random.nextInt(open.getSize() + 36), ClickType.LEFT);
+            this.clicks++;
+        }
+    }
+
+    private void openMenu(StandInPlayer player) {
+        if (this.random.nextDouble() < this.paginatedShare) {
+            this.catalog.instantiate().open(player.getPlayer());
+        } else {
+            new ProfileMenu(player).open(player.getPlayer());
+        }
+    }
+
+    private PaginatedFastInv createCatalog() {
+        Material[] materials = {Material.STONE, Material.DIRT, Material.DIAMOND, Material.GOLD_INGOT, Material.APPLE};
+        PaginatedFastInv inv = new PaginatedFastInv(54, "Catalog");
+
+        inv.previousPageItem(PREVIOUS_PAGE_SLOT, page -> new ItemStack(Material.ARROW, page));
+        inv.nextPageItem(NEXT_PAGE_SLOT, page -> new ItemStack(Material.ARROW, page));
+
+        for (int i = 0; i < this.contentSize; i++) {
+            int amount = 1 + i % 64;
+
+            inv.addContent(new ItemStack(materials[i % materials.length], amount), e -> e.setCancelled(true));
+        }
+
+        return inv;
+    }
+
+    private void report(int tick, long[] interval) {
+        System.out.printf(Locale.ROOT, "%8d %10.3f %10.3f %10.3f %8d %10d %10.1f%n",
+                tick, toMillis(mean(interval)), toMillis(percentile(interval, 0.99)), toMillis(max(interval)),
+                FastInvManager.getViewerCount(), FastInvManager.getPendingRefreshes(),
+                toMegabytes(this.memory.getHeapMemoryUsage().getUsed()));
+    }
+
+    private long usedHeapAfterGc() {
+        System.gc();
+        return this.memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private int intOption(String name, int defaultValue) {
+        String value = this.options.remove(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private double doubleOption(String name, double defaultValue) {
+        String value = this.options.remove(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    private double chanceOption(String name, double defaultRate) {
+        return doubleOption(name, defaultRate) / TICKS_PER_SECOND;
+    }
+
+    private static double mean(long[] values) {
+        return (double) Arrays.stream(values).sum() / values.length;
+    }
+
+    private static long max(long[] values) {
+        return Arrays.stream(values).max().orElse(0);
+    }
+
+    private static long percentile(long[] values, double percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        return sorted[Math.min(sorted.length - 1, (int) (percentile * sorted.length))];
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static double toMegabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    /**
+     * A personal menu, built for each player, with an updater and clicks queuing refreshes.
+     */
+    private static final class ProfileMenu extends FastInv {
+
+        private int clicks;
+
+        ProfileMenu(StandInPlayer player) {
+            super(27, player.getPlayer().getName());
+
+            setItems(getBorders(), new ItemStack(Material.BLACK_STAINED_GLASS_PANE));
+
+            for (int slot = 10; slot <= 16; slot++) {
+                setItem(slot, new ItemStack(Material.DIAMOND), e -> {
+                    this.clicks++;
+                    FastInvManager.queueRefresh(this, this::refresh);
+                });
+            }
+
+            setUpdater(TICKS_PER_SECOND, this::refresh);
+        }
+
+        private void refresh() {
+            setItem(13, new ItemStack(Material.GOLD_INGOT, 1 + this.clicks % 64));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package fr.mrmicky.fastinv;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A click rate limit, working like a token bucket: a player can click {@code burst} times in a row,
+ * then the clicks are limited to the given rate. Clicks over the limit are cancelled before
+ * reaching the FastInv handlers.
+ *
+ * @see FastInvManager#setClickRateLimit(ClickRateLimit)
+ * @see FastInv#setClickRateLimit(ClickRateLimit)
+ */
+public final class ClickRateLimit {
+
+    /**
+     * A rate limit that doesn't limit any click.
+     */
+    public static final ClickRateLimit UNLIMITED = new ClickRateLimit(0, 0);
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+
+    private ClickRateLimit(long intervalNanos, long toleranceNanos) {
+        this.intervalNanos = intervalNanos;
+        this.toleranceNanos = toleranceNanos;
+    }
+
+    /**
+     * Create a new click rate limit.
+     *
+     * @param clicks the number of clicks allowed in the given period, in the long run
+     * @param period the period
+     * @param unit   the time unit of the period
+     * @param burst  the number of clicks allowed in a row before being limited
+     * @return the new rate limit
+     */
+    public static ClickRateLimit of(int clicks, long period, TimeUnit unit, int burst) {
+        if (clicks <= 0 || period <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Clicks, period and burst must be positive");
+        }
+
+        long interval = unit.toNanos(period) / clicks;
+
+        return new ClickRateLimit(interval, interval * (burst - 1));
+    }
+
+    /**
+     * Create a new click rate limit, with the given number of clicks per second.
+     *
+     * @param clicksPerSecond the number of clicks allowed per second, in the long run
+     * @param burst           the number of clicks allowed in a row before being limited
+     * @return the new rate limit
+     */
+    public static ClickRateLimit perSecond(int clicksPerSecond, int burst) {
+        return of(clicksPerSecond, 1, TimeUnit.SECONDS, burst);
+    }
+
+    boolean isUnlimited() {
+        return this.intervalNanos == 0;
+    }
+
+    long intervalNanos() {
+        return this.intervalNanos;
+    }
+
+    long toleranceNanos() {
+        return this.toleranceNanos;
+    }
+}
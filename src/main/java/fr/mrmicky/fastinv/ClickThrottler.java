@@ -0,0 +1,159 @@
+package fr.mrmicky.fastinv;
+
+import java.util.Arrays;
+
+/**
+ * Per-player click rate limiting state, keyed by the player entity id.
+ * <p>
+ * Each player only has a single {@code long}: the time at which its bucket will be full again
+ * (generic cell rate algorithm, equivalent to a token bucket). A player is tracked from its first
+ * throttled click, and is only removed when it closes the inventory with a full bucket, or quits.
+ * Clicks are only checked by the inventory listener, so the buckets are not synchronized.
+ */
+final class ClickThrottler {
+
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+
+    ClickThrottler() {
+        allocate(16);
+    }
+
+    /**
+     * Try to consume a click for a player. Unlimited clicks must not be checked with this method.
+     *
+     * @param playerId the entity id of the player
+     * @param limit    the rate limit to apply, which must not be unlimited
+     * @param now      the current time, from {@link System#nanoTime()}
+     * @return true if the click is allowed, false if it is over the limit
+     */
+    boolean tryAcquire(int playerId, ClickRateLimit limit, long now) {
+        int index = indexOf(playerId);
+        long full = index >= 0 ? this.values[index] : now;
+
+        if (full - now < 0) {
+            full = now;
+        }
+
+        if (full - now > limit.toleranceNanos()) {
+            return false;
+        }
+
+        long next = full + limit.intervalNanos();
+
+        if (index >= 0) {
+            this.values[index] = next;
+        } else {
+            insert(playerId, next);
+        }
+        return true;
+    }
+
+    /**
+     * Stop tracking a player if its bucket is full.
+     *
+     * @param playerId the entity id of the player
+     * @param now      the current time, from {@link System#nanoTime()}
+     */
+    void release(int playerId, long now) {
+        int index = indexOf(playerId);
+
+        if (index >= 0 && this.values[index] - now <= 0) {
+            removeAt(index);
+        }
+    }
+
+    /**
+     * Stop tracking a player.
+     *
+     * @param playerId the entity id of the player
+     */
+    void remove(int playerId) {
+        int index = indexOf(playerId);
+
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    private int indexOf(int key) {
+        int mask = this.keys.length - 1;
+
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = this.keys[i];
+
+            if (k == key) {
+                return i;
+            }
+
+            if (k == FREE) {
+                return -1;
+            }
+        }
+    }
+
+    private void insert(int key, long value) {
+        if ((this.size + 1) * 2 > this.keys.length) {
+            int[] oldKeys = this.keys;
+            long[] oldValues = this.values;
+
+            allocate(oldKeys.length * 2);
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) {
+                    insert(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        int mask = this.keys.length - 1;
+        int i = mix(key) & mask;
+
+        while (this.keys[i] != FREE) {
+            i = (i + 1) & mask;
+        }
+
+        this.keys[i] = key;
+        this.values[i] = value;
+        this.size++;
+    }
+
+    private void removeAt(int index) {
+        int mask = this.keys.length - 1;
+        int free = index;
+
+        // Backward shift deletion, to keep the probe sequences without tombstones
+        for (int i = (index + 1) & mask; this.keys[i] != FREE; i = (i + 1) & mask) {
+            int home = mix(this.keys[i]) & mask;
+
+            if (((i - home) & mask) >= ((i - free) & mask)) {
+                this.keys[free] = this.keys[i];
+                this.values[free] = this.values[i];
+                free = i;
+            }
+        }
+
+        this.keys[free] = FREE;
+        this.size--;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new long[capacity];
+        this.size = 0;
+
+        Arrays.fill(this.keys, FREE);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
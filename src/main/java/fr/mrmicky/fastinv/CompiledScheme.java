@@ -0,0 +1,70 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable layout compiled from an {@link InventoryScheme}, that can be applied to many inventories
+ * without parsing the masks again.
+ *
+ * @see InventoryScheme#compile()
+ */
+public final class CompiledScheme {
+
+    private final ItemStack[] items;
+    private final Consumer<InventoryClickEvent>[] handlers;
+    private final int[] itemSlots;
+    private final int[] paginationSlots;
+    private final List<Integer> paginationSlotsList;
+
+    CompiledScheme(ItemStack[] items, Consumer<InventoryClickEvent>[] handlers, int[] paginationSlots) {
+        this.items = items;
+        this.handlers = handlers;
+        this.itemSlots = IntStream.range(0, items.length).filter(i -> items[i] != null).toArray();
+        this.paginationSlots = paginationSlots;
+        this.paginationSlotsList = Collections.unmodifiableList(Arrays.stream(paginationSlots).boxed().collect(Collectors.toList()));
+    }
+
+    /**
+     * Apply this layout to the FastInv instance, in a single batch edit.
+     *
+     * @param inv the FastInv instance to apply this layout to
+     */
+    public void apply(FastInv inv) {
+        inv.edit(editor -> {
+            for (int slot : this.itemSlots) {
+                editor.setItem(slot, this.items[slot], this.handlers[slot]);
+            }
+        });
+
+        if (inv instanceof PaginatedFastInv && this.paginationSlots.length > 0) {
+            ((PaginatedFastInv) inv).setContentSlots(this.paginationSlotsList);
+        }
+    }
+
+    /**
+     * Get the item of a slot in this layout.
+     *
+     * @param slot the slot
+     * @return the item of this slot, or null if there is no item on this slot
+     */
+    public ItemStack getItem(int slot) {
+        return slot >= 0 && slot < this.items.length ? this.items[slot] : null;
+    }
+
+    /**
+     * Get the slots used for the pagination content.
+     *
+     * @return a copy of the pagination slots
+     */
+    public int[] getPaginationSlots() {
+        return this.paginationSlots.clone();
+    }
+}
@@ -31,10 +31,10 @@ import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.stream.IntStream;
 
 /**
  * Lightweight and easy-to-use inventory API for Bukkit plugins.
@@ -45,15 +45,34 @@ import java.util.stream.IntStream;
  */
 public class FastInv implements InventoryHolder {
 
-    private final Map<Integer, Consumer<InventoryClickEvent>> itemHandlers = new HashMap<>();
+    private static final LongAdder APPLIED_WRITES = new LongAdder();
+    private static final LongAdder SKIPPED_WRITES = new LongAdder();
+
+    private static final int CLICK_TYPES = ClickType.values().length;
+
     private final List<Consumer<InventoryOpenEvent>> openHandlers = new ArrayList<>();
     private final List<Consumer<InventoryCloseEvent>> closeHandlers = new ArrayList<>();
     private final List<Consumer<InventoryClickEvent>> clickHandlers = new ArrayList<>();
     private final List<Consumer<InventoryDragEvent>> dragHandlers = new ArrayList<>();
 
+    private final Function<FastInv, Inventory> inventoryFunction;
     private final Inventory inventory;
 
+    private Consumer<InventoryClickEvent>[] itemHandlers;
+    // Handlers per slot and click type, at index slot * CLICK_TYPES + clickType.ordinal(), created on first use
+    private Consumer<InventoryClickEvent>[] typedItemHandlers;
+    private boolean sharedHandlers;
+    // Global handlers per click type, indexed by clickType.ordinal(), created on first use
+    private Consumer<InventoryClickEvent>[][] clickTypeHandlers;
+
     private Predicate<Player> closeFilter;
+    private ItemStack[] shadowContents;
+    private ClickRateLimit clickRateLimit;
+    private long rejectedClicks;
+    private Runnable updater;
+    private int updatePeriod;
+    private String menuKey;
+    private boolean editing;
 
     /**
      * Create a new FastInv with a custom size.
@@ -105,7 +124,45 @@ public class FastInv implements InventoryHolder {
             throw new IllegalStateException("Inventory holder is not FastInv, found: " + inv.getHolder());
         }
 
+        this.inventoryFunction = inventoryFunction;
         this.inventory = inv;
+        this.itemHandlers = newHandlerArray(inv.getSize());
+
+        FastInvManager.trackInventory(this);
+    }
+
+    /**
+     * Create a copy of a FastInv with the given contents, used by {@link FastInvTemplate}.
+     * The click handlers table is shared with the source until one of them changes a slot.
+     *
+     * @param source   the FastInv to copy
+     * @param contents the contents of the new inventory
+     */
+    FastInv(FastInv source, ItemStack[] contents) {
+        this(source.inventoryFunction);
+
+        this.inventory.setContents(contents);
+
+        this.itemHandlers = source.itemHandlers;
+        this.typedItemHandlers = source.typedItemHandlers;
+        this.sharedHandlers = true;
+        source.sharedHandlers = true;
+
+        if (source.clickTypeHandlers != null) {
+            this.clickTypeHandlers = source.clickTypeHandlers.clone();
+        }
+
+        this.openHandlers.addAll(source.openHandlers);
+        this.closeHandlers.addAll(source.closeHandlers);
+        this.clickHandlers.addAll(source.clickHandlers);
+        this.dragHandlers.addAll(source.dragHandlers);
+        this.closeFilter = source.closeFilter;
+        this.clickRateLimit = source.clickRateLimit;
+        this.menuKey = source.menuKey;
+
+        if (source.shadowContents != null) {
+            this.shadowContents = source.shadowContents.clone();
+        }
     }
 
     /**
@@ -180,12 +237,57 @@ public class FastInv implements InventoryHolder {
      * @param handler the click handler associated to this item
      */
     public void setItem(int slot, ItemStack item, Consumer<InventoryClickEvent> handler) {
-        this.inventory.setItem(slot, item);
+        checkNotEditing();
 
-        if (handler != null) {
-            this.itemHandlers.put(slot, handler);
-        } else {
-            this.itemHandlers.remove(slot);
+        if (shouldWrite(slot, item)) {
+            this.inventory.setItem(slot, item);
+        }
+
+        setHandler(slot, handler);
+    }
+
+    /**
+     * Set the click handler of a slot for a specific click type.
+     * This handler is called after the handler set with {@link #setItem(int, ItemStack, Consumer)},
+     * and is removed when the item of the slot is changed or removed.
+     *
+     * @param slot      the slot of the handler
+     * @param clickType the click type that will call the handler
+     * @param handler   the click handler, or null to remove it
+     */
+    public void setClickHandler(int slot, ClickType clickType, Consumer<InventoryClickEvent> handler) {
+        if (slot < 0 || slot >= this.itemHandlers.length) {
+            throw new IllegalArgumentException("Invalid slot: " + slot);
+        }
+
+        int index = slot * CLICK_TYPES + clickType.ordinal();
+
+        if (this.typedItemHandlers == null) {
+            if (handler == null) {
+                return;
+            }
+
+            this.typedItemHandlers = newHandlerArray(this.itemHandlers.length * CLICK_TYPES);
+        } else if (this.typedItemHandlers[index] == handler) {
+            return;
+        } else if (this.sharedHandlers) {
+            copySharedHandlers();
+        }
+
+        this.typedItemHandlers[index] = handler;
+    }
+
+    /**
+     * Set the click handler of a slot for a group of click types.
+     *
+     * @param slot       the slot of the handler
+     * @param clickTypes the click types that will call the handler
+     * @param handler    the click handler, or null to remove it
+     * @see #setClickHandler(int, ClickType, Consumer)
+     */
+    public void setClickHandler(int slot, Collection<ClickType> clickTypes, Consumer<InventoryClickEvent> handler) {
+        for (ClickType clickType : clickTypes) {
+            setClickHandler(slot, clickType, handler);
         }
     }
 
@@ -237,6 +339,27 @@ public class FastInv implements InventoryHolder {
         }
     }
 
+    /**
+     * Add an {@link ItemStack} to the inventory on the slots of a mask, with no click handler.
+     *
+     * @param mask the mask of the slots where to add the item
+     * @param item the item to add
+     */
+    public void setItems(SlotMask mask, ItemStack item) {
+        setItems(mask, item, null);
+    }
+
+    /**
+     * Add an {@link ItemStack} to the inventory on the slots of a mask with a click handler.
+     *
+     * @param mask    the mask of the slots where to add the item
+     * @param item    the item to add
+     * @param handler the click handler associated to this item
+     */
+    public void setItems(SlotMask mask, ItemStack item, Consumer<InventoryClickEvent> handler) {
+        setItems(mask.slots(), item, handler);
+    }
+
     /**
      * Add an {@link ItemStack} to the inventory on multiple slots, with no click handler.
      *
@@ -266,8 +389,13 @@ public class FastInv implements InventoryHolder {
      * @param slot the slot from where to remove the item
      */
     public void removeItem(int slot) {
-        this.inventory.clear(slot);
-        this.itemHandlers.remove(slot);
+        checkNotEditing();
+
+        if (shouldWrite(slot, null)) {
+            this.inventory.clear(slot);
+        }
+
+        setHandler(slot, null);
     }
 
     /**
@@ -285,8 +413,100 @@ public class FastInv implements InventoryHolder {
      * Clear all items from the inventory and remove the click handlers.
      */
     public void clearItems() {
+        checkNotEditing();
+
         this.inventory.clear();
-        this.itemHandlers.clear();
+
+        if (this.sharedHandlers) {
+            this.itemHandlers = newHandlerArray(this.itemHandlers.length);
+            this.typedItemHandlers = null;
+            this.sharedHandlers = false;
+        } else {
+            Arrays.fill(this.itemHandlers, null);
+
+            if (this.typedItemHandlers != null) {
+                Arrays.fill(this.typedItemHandlers, null);
+            }
+        }
+
+        if (this.shadowContents != null) {
+            Arrays.fill(this.shadowContents, null);
+        }
+    }
+
+    /**
+     * Set if item writes identical to the last item written on a slot should be skipped.
+     * When enabled, a copy of the last item set on each slot is kept, and {@link #setItem(int, ItemStack)}
+     * does nothing if the new item is similar and has the same amount, avoiding a slot update for the viewers.
+     * <p>
+     * As the items written are tracked by FastInv, the Bukkit inventory should not be modified directly
+     * while this option is enabled, and click handlers should keep the clicks cancelled.
+     *
+     * @param skipUnchangedItems true to skip writes of unchanged items
+     * @see #getAppliedWrites()
+     * @see #getSkippedWrites()
+     */
+    public void setSkipUnchangedItems(boolean skipUnchangedItems) {
+        if (!skipUnchangedItems) {
+            this.shadowContents = null;
+            return;
+        }
+
+        if (this.shadowContents == null) {
+            ItemStack[] contents = Arrays.copyOf(this.inventory.getContents(), this.itemHandlers.length);
+
+            for (int i = 0; i < contents.length; i++) {
+                contents[i] = contents[i] != null ? contents[i].clone() : null;
+            }
+
+            this.shadowContents = contents;
+        }
+    }
+
+    /**
+     * Get the total number of item writes applied to FastInv inventories.
+     *
+     * @return the number of applied item writes
+     */
+    public static long getAppliedWrites() {
+        return APPLIED_WRITES.sum();
+    }
+
+    /**
+     * Get the total number of item writes skipped because the item was unchanged.
+     *
+     * @return the number of skipped item writes
+     * @see #setSkipUnchangedItems(boolean)
+     */
+    public static long getSkippedWrites() {
+        return SKIPPED_WRITES.sum();
+    }
+
+    /**
+     * Edit the items and click handlers of this inventory in a single batch.
+     * The changes are staged and only applied to the inventory once the function returns,
+     * with a single contents update when most of the slots changed.
+     * <p>
+     * Only the methods of the {@link Editor} can change the items during the edit, as the staged
+     * contents would overwrite any other change. Setting, removing or clearing the items of this
+     * inventory directly, or starting another edit, from the edit function throws an exception.
+     *
+     * @param editFunction the function editing the inventory
+     * @throws IllegalStateException if this inventory is already being edited
+     */
+    public void edit(Consumer<Editor> editFunction) {
+        checkNotEditing();
+
+        Editor editor = new Editor();
+        this.editing = true;
+
+        try {
+            editFunction.accept(editor);
+        } finally {
+            this.editing = false;
+        }
+
+        editor.commit();
     }
 
     /**
@@ -299,6 +519,79 @@ public class FastInv implements InventoryHolder {
         this.closeFilter = closeFilter;
     }
 
+    /**
+     * Set the click rate limit of this inventory, overriding the default one of {@link FastInvManager}.
+     * Clicks over the limit are cancelled before reaching the handlers of this inventory.
+     *
+     * @param clickRateLimit the click rate limit, or null to use the default one
+     * @see FastInvManager#setClickRateLimit(ClickRateLimit)
+     */
+    public void setClickRateLimit(ClickRateLimit clickRateLimit) {
+        this.clickRateLimit = clickRateLimit;
+    }
+
+    /**
+     * Get the number of clicks on this inventory cancelled by the click rate limit.
+     *
+     * @return the number of rejected clicks
+     */
+    public long getRejectedClicks() {
+        return this.rejectedClicks;
+    }
+
+    /**
+     * Set the key of this menu, used to find the open inventories sharing the same key,
+     * for example all the open shop menus. The key should be set before opening the inventory.
+     *
+     * @param menuKey the key of this menu, or null to remove it
+     * @see FastInvManager#getOpenInventories(String)
+     * @see FastInvManager#closeAll(String)
+     */
+    public void setMenuKey(String menuKey) {
+        this.menuKey = menuKey;
+    }
+
+    /**
+     * Get the key of this menu.
+     *
+     * @return the key of this menu, or null if it has no key
+     */
+    public String getMenuKey() {
+        return this.menuKey;
+    }
+
+    /**
+     * Set a task updating this inventory periodically while it is open, for example to animate items.
+     * All the updaters are run by a single task of {@link FastInvManager}, and are only run while the
+     * inventory has viewers. Updaters are not copied by {@link FastInvTemplate}.
+     * This method must be called from the main thread.
+     *
+     * @param period  the number of ticks between two updates
+     * @param updater the task updating this inventory
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public void setUpdater(int period, Runnable updater) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("The update period must be positive");
+        }
+
+        this.updater = Objects.requireNonNull(updater, "updater");
+        this.updatePeriod = period;
+
+        if (!this.inventory.getViewers().isEmpty()) {
+            FastInvManager.scheduleUpdates(this, period);
+        }
+    }
+
+    /**
+     * Remove the updater of this inventory. This method must be called from the main thread.
+     */
+    public void removeUpdater() {
+        this.updater = null;
+
+        FastInvManager.cancelUpdates(this);
+    }
+
     /**
      * Add a handler that will be called when the inventory is opened.
      *
@@ -326,6 +619,44 @@ public class FastInv implements InventoryHolder {
         this.clickHandlers.add(clickHandler);
     }
 
+    /**
+     * Add a handler that will be called when an item is clicked with a specific click type.
+     *
+     * @param clickType    the click type that will call the handler
+     * @param clickHandler the handler to add
+     */
+    public void addClickHandler(ClickType clickType, Consumer<InventoryClickEvent> clickHandler) {
+        Objects.requireNonNull(clickHandler, "clickHandler");
+
+        if (this.clickTypeHandlers == null) {
+            this.clickTypeHandlers = newHandlerTable(CLICK_TYPES);
+        }
+
+        Consumer<InventoryClickEvent>[] handlers = this.clickTypeHandlers[clickType.ordinal()];
+
+        if (handlers == null) {
+            handlers = newHandlerArray(1);
+        } else {
+            // Copy the array, as it may be shared with other instances created from the same template
+            handlers = Arrays.copyOf(handlers, handlers.length + 1);
+        }
+
+        handlers[handlers.length - 1] = clickHandler;
+        this.clickTypeHandlers[clickType.ordinal()] = handlers;
+    }
+
+    /**
+     * Add a handler that will be called when an item is clicked with one of the given click types.
+     *
+     * @param clickTypes   the click types that will call the handler
+     * @param clickHandler the handler to add
+     */
+    public void addClickHandler(Collection<ClickType> clickTypes, Consumer<InventoryClickEvent> clickHandler) {
+        for (ClickType clickType : clickTypes) {
+            addClickHandler(clickType, clickHandler);
+        }
+    }
+
     /**
      * Add a handler that will be called when the player drags an item in their cursor across the inventory.
      *
@@ -350,9 +681,17 @@ public class FastInv implements InventoryHolder {
      * @return the inventory borders slots
      */
     public int[] getBorders() {
-        int size = this.inventory.getSize();
-        return IntStream.range(0, size).filter(i -> size < 27 || i < 9
-                || i % 9 == 0 || (i - 8) % 9 == 0 || i > size - 9).toArray();
+        return getBordersMask().toArray();
+    }
+
+    /**
+     * Get the cached mask of the borders of this inventory. If the inventory size is under 27, all slots are returned.
+     *
+     * @return the inventory borders mask
+     * @see SlotMask#borders(Inventory)
+     */
+    public SlotMask getBordersMask() {
+        return SlotMask.borders(this.inventory);
     }
 
     /**
@@ -361,10 +700,17 @@ public class FastInv implements InventoryHolder {
      * @return the inventory corners slots
      */
     public int[] getCorners() {
-        int size = this.inventory.getSize();
-        return IntStream.range(0, size).filter(i -> i < 2 || (i > 6 && i < 10)
-                || i == 17 || i == size - 18
-                || (i > size - 11 && i < size - 7) || i > size - 3).toArray();
+        return getCornersMask().toArray();
+    }
+
+    /**
+     * Get the cached mask of the corners of this inventory.
+     *
+     * @return the inventory corners mask
+     * @see SlotMask#corners(Inventory)
+     */
+    public SlotMask getCornersMask() {
+        return SlotMask.corners(this.inventory);
     }
 
     /**
@@ -377,6 +723,26 @@ public class FastInv implements InventoryHolder {
         return this.inventory;
     }
 
+    ClickRateLimit getClickRateLimit() {
+        return this.clickRateLimit;
+    }
+
+    void rejectClick() {
+        this.rejectedClicks++;
+    }
+
+    void update() {
+        if (this.updater != null) {
+            this.updater.run();
+        }
+    }
+
+    void startUpdates() {
+        if (this.updater != null) {
+            FastInvManager.scheduleUpdates(this, this.updatePeriod);
+        }
+    }
+
     void handleOpen(InventoryOpenEvent e) {
         onOpen(e);
 
@@ -384,6 +750,11 @@ public class FastInv implements InventoryHolder {
     }
 
     boolean handleClose(InventoryCloseEvent e) {
+        // The closing player is still in the viewers
+        if (this.updater != null && this.inventory.getViewers().size() <= 1) {
+            FastInvManager.cancelUpdates(this);
+        }
+
         onClose(e);
 
         this.closeHandlers.forEach(c -> c.accept(e));
@@ -394,13 +765,38 @@ public class FastInv implements InventoryHolder {
     void handleClick(InventoryClickEvent e) {
         onClick(e);
 
-        this.clickHandlers.forEach(c -> c.accept(e));
+        for (int i = 0; i < this.clickHandlers.size(); i++) {
+            this.clickHandlers.get(i).accept(e);
+        }
+
+        int clickType = e.getClick().ordinal();
+
+        if (this.clickTypeHandlers != null && this.clickTypeHandlers[clickType] != null) {
+            for (Consumer<InventoryClickEvent> handler : this.clickTypeHandlers[clickType]) {
+                handler.accept(e);
+            }
+        }
+
+        int slot = e.getRawSlot();
+
+        // Raw slots outside the top inventory (player inventory or outside the window) have no handler
+        if (slot < 0 || slot >= this.itemHandlers.length) {
+            return;
+        }
 
-        Consumer<InventoryClickEvent> clickConsumer = this.itemHandlers.get(e.getRawSlot());
+        Consumer<InventoryClickEvent> clickConsumer = this.itemHandlers[slot];
 
         if (clickConsumer != null) {
             clickConsumer.accept(e);
         }
+
+        if (this.typedItemHandlers != null) {
+            Consumer<InventoryClickEvent> typedConsumer = this.typedItemHandlers[slot * CLICK_TYPES + clickType];
+
+            if (typedConsumer != null) {
+                typedConsumer.accept(e);
+            }
+        }
     }
 
     void handleDrag(InventoryDragEvent e) {
@@ -408,4 +804,230 @@ public class FastInv implements InventoryHolder {
 
         this.dragHandlers.forEach(c -> c.accept(e));
     }
+
+    private void setHandler(int slot, Consumer<InventoryClickEvent> handler) {
+        boolean hasTypedHandlers = hasTypedHandlers(slot);
+
+        if (this.itemHandlers[slot] == handler && !hasTypedHandlers) {
+            return;
+        }
+
+        // The handlers tables may be shared with other instances created from the same template
+        if (this.sharedHandlers) {
+            copySharedHandlers();
+        }
+
+        this.itemHandlers[slot] = handler;
+
+        if (hasTypedHandlers) {
+            Arrays.fill(this.typedItemHandlers, slot * CLICK_TYPES, (slot + 1) * CLICK_TYPES, null);
+        }
+    }
+
+    private boolean hasTypedHandlers(int slot) {
+        if (this.typedItemHandlers == null) {
+            return false;
+        }
+
+        for (int i = slot * CLICK_TYPES; i < (slot + 1) * CLICK_TYPES; i++) {
+            if (this.typedItemHandlers[i] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void copySharedHandlers() {
+        this.itemHandlers = this.itemHandlers.clone();
+
+        if (this.typedItemHandlers != null) {
+            this.typedItemHandlers = this.typedItemHandlers.clone();
+        }
+
+        this.sharedHandlers = false;
+    }
+
+    private void checkNotEditing() {
+        if (this.editing) {
+            throw new IllegalStateException("The items can only be changed with the Editor during an edit");
+        }
+    }
+
+    private boolean shouldWrite(int slot, ItemStack item) {
+        if (this.shadowContents != null) {
+            ItemStack previous = this.shadowContents[slot];
+
+            if (previous == null ? item == null
+                    : item != null && previous.getAmount() == item.getAmount() && previous.isSimilar(item)) {
+                SKIPPED_WRITES.increment();
+                return false;
+            }
+
+            this.shadowContents[slot] = item != null ? item.clone() : null;
+        }
+
+        APPLIED_WRITES.increment();
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<InventoryClickEvent>[] newHandlerArray(int size) {
+        return (Consumer<InventoryClickEvent>[]) new Consumer[size];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<InventoryClickEvent>[][] newHandlerTable(int size) {
+        return (Consumer<InventoryClickEvent>[][]) new Consumer[size][];
+    }
+
+    /**
+     * Batch editor of a FastInv, created with {@link #edit(Consumer)}.
+     * Changes are staged and applied together once the edit function returns.
+     */
+    public final class Editor {
+
+        private final ItemStack[] contents;
+        private final Consumer<InventoryClickEvent>[] handlers;
+        private final BitSet dirty = new BitSet();
+
+        private Editor() {
+            this.contents = Arrays.copyOf(FastInv.this.inventory.getContents(), FastInv.this.itemHandlers.length);
+            this.handlers = FastInv.this.itemHandlers.clone();
+        }
+
+        /**
+         * Get the staged item on the given slot.
+         *
+         * @param slot the slot of the item
+         * @return the item on this slot, or null if the slot is empty
+         */
+        public ItemStack getItem(int slot) {
+            return this.contents[slot];
+        }
+
+        /**
+         * Set an {@link ItemStack} on a specific slot, with no click handler.
+         *
+         * @param slot the slot where to add the item
+         * @param item the item to add
+         * @return this editor
+         */
+        public Editor setItem(int slot, ItemStack item) {
+            return setItem(slot, item, null);
+        }
+
+        /**
+         * Set an {@link ItemStack} on a specific slot with a click handler.
+         *
+         * @param slot    the slot where to add the item
+         * @param item    the item to add
+         * @param handler the click handler associated to this item
+         * @return this editor
+         */
+        public Editor setItem(int slot, ItemStack item, Consumer<InventoryClickEvent> handler) {
+            this.contents[slot] = item;
+            this.handlers[slot] = handler;
+            this.dirty.set(slot);
+            return this;
+        }
+
+        /**
+         * Set an {@link ItemStack} on a range of slots with a click handler.
+         *
+         * @param slotFrom starting slot (inclusive) to put the item in
+         * @param slotTo   ending slot (exclusive) to put the item in
+         * @param item     the item to add
+         * @param handler  the click handler associated to these items
+         * @return this editor
+         */
+        public Editor setItems(int slotFrom, int slotTo, ItemStack item, Consumer<InventoryClickEvent> handler) {
+            for (int i = slotFrom; i < slotTo; i++) {
+                setItem(i, item, handler);
+            }
+            return this;
+        }
+
+        /**
+         * Set an {@link ItemStack} on multiple slots with a click handler.
+         *
+         * @param slots   the slots where to add the item
+         * @param item    the item to add
+         * @param handler the click handler associated to this item
+         * @return this editor
+         */
+        public Editor setItems(int[] slots, ItemStack item, Consumer<InventoryClickEvent> handler) {
+            for (int slot : slots) {
+                setItem(slot, item, handler);
+            }
+            return this;
+        }
+
+        /**
+         * Set an {@link ItemStack} on the slots of a mask with a click handler.
+         *
+         * @param mask    the mask of the slots where to add the item
+         * @param item    the item to add
+         * @param handler the click handler associated to this item
+         * @return this editor
+         */
+        public Editor setItems(SlotMask mask, ItemStack item, Consumer<InventoryClickEvent> handler) {
+            return setItems(mask.slots(), item, handler);
+        }
+
+        /**
+         * Remove the item and the click handler from a slot.
+         *
+         * @param slot the slot from where to remove the item
+         * @return this editor
+         */
+        public Editor removeItem(int slot) {
+            return setItem(slot, null, null);
+        }
+
+        /**
+         * Remove all items and click handlers.
+         *
+         * @return this editor
+         */
+        public Editor clearItems() {
+            return setItems(0, this.contents.length, null, null);
+        }
+
+        void commit() {
+            if (FastInv.this.typedItemHandlers != null) {
+                if (FastInv.this.sharedHandlers) {
+                    FastInv.this.typedItemHandlers = FastInv.this.typedItemHandlers.clone();
+                }
+
+                // Changing the item of a slot removes its click type handlers, like setItem()
+                for (int slot = this.dirty.nextSetBit(0); slot >= 0; slot = this.dirty.nextSetBit(slot + 1)) {
+                    Arrays.fill(FastInv.this.typedItemHandlers, slot * CLICK_TYPES, (slot + 1) * CLICK_TYPES, null);
+                }
+            }
+
+            for (int slot = this.dirty.nextSetBit(0); slot >= 0; slot = this.dirty.nextSetBit(slot + 1)) {
+                if (!shouldWrite(slot, this.contents[slot])) {
+                    this.dirty.clear(slot);
+                }
+            }
+
+            FastInv.this.itemHandlers = this.handlers;
+            FastInv.this.sharedHandlers = false;
+
+            int changed = this.dirty.cardinality();
+
+            if (changed == 0) {
+                return;
+            }
+
+            // A full contents update is cheaper than many single slot updates
+            if (changed * 2 >= this.contents.length) {
+                FastInv.this.inventory.setContents(this.contents);
+            } else {
+                for (int slot = this.dirty.nextSetBit(0); slot >= 0; slot = this.dirty.nextSetBit(slot + 1)) {
+                    FastInv.this.inventory.setItem(slot, this.contents[slot]);
+                }
+            }
+        }
+    }
 }
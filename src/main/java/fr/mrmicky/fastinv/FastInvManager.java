@@ -24,18 +24,30 @@
 package fr.mrmicky.fastinv;
 
 import org.bukkit.Bukkit;
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.plugin.Plugin;
 
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * Manager for FastInv listeners.
@@ -46,6 +58,19 @@ public final class FastInvManager {
 
     private static final AtomicBoolean REGISTERED = new AtomicBoolean(false);
 
+    // Bukkit inventories compare by their underlying inventory, so the wrappers given by events match the keys.
+    // Values are weak too, as each FastInv strongly references its inventory (the key).
+    private static final Map<Inventory, WeakReference<FastInv>> INVENTORIES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final LongAdder REJECTED_CLICKS = new LongAdder();
+
+    private static final UpdateScheduler UPDATE_SCHEDULER = new UpdateScheduler();
+    private static final RefreshQueue REFRESH_QUEUE = new RefreshQueue();
+    private static final OpenMenuRegistry OPEN_MENUS = new OpenMenuRegistry();
+
+    private static volatile ClickRateLimit clickRateLimit = ClickRateLimit.UNLIMITED;
+    private static volatile Plugin registeredPlugin;
+
     private FastInvManager() {
         throw new UnsupportedOperationException();
     }
@@ -64,12 +89,314 @@ public final class FastInvManager {
             throw new IllegalStateException("FastInv is already registered");
         }
 
+        registeredPlugin = plugin;
+
         Bukkit.getPluginManager().registerEvents(new InventoryListener(plugin), plugin);
     }
 
+    /**
+     * Set the default per-player click rate limit of all FastInv inventories.
+     * Clicks over the limit are cancelled before reaching the FastInv handlers.
+     * By default, clicks are not limited.
+     *
+     * @param clickRateLimit the default click rate limit
+     * @see FastInv#setClickRateLimit(ClickRateLimit)
+     */
+    public static void setClickRateLimit(ClickRateLimit clickRateLimit) {
+        FastInvManager.clickRateLimit = Objects.requireNonNull(clickRateLimit, "clickRateLimit");
+    }
+
+    /**
+     * Get the total number of clicks cancelled by the click rate limits.
+     *
+     * @return the number of rejected clicks
+     */
+    public static long getRejectedClicks() {
+        return REJECTED_CLICKS.sum();
+    }
+
+    /**
+     * Get the FastInv associated to a Bukkit inventory, without calling {@link Inventory#getHolder()}.
+     *
+     * @param inventory the Bukkit inventory
+     * @return the FastInv of this inventory, or null if the inventory is not a FastInv inventory
+     */
+    public static FastInv getFastInv(Inventory inventory) {
+        if (inventory == null) {
+            return null;
+        }
+
+        WeakReference<FastInv> ref = INVENTORIES.get(inventory);
+
+        return ref != null ? ref.get() : null;
+    }
+
+    /**
+     * Get the number of open inventories with an updater.
+     *
+     * @return the number of scheduled inventories
+     * @see FastInv#setUpdater(int, Runnable)
+     */
+    public static int getUpdatingInventories() {
+        return UPDATE_SCHEDULER.size();
+    }
+
+    /**
+     * Get the number of inventories updated during the last tick.
+     *
+     * @return the number of updated inventories
+     */
+    public static int getLastTickUpdates() {
+        return UPDATE_SCHEDULER.getLastTickUpdates();
+    }
+
+    /**
+     * Get the time spent running the inventory updaters during the last tick.
+     *
+     * @return the update time, in nanoseconds
+     */
+    public static long getLastTickUpdateNanos() {
+        return UPDATE_SCHEDULER.getLastTickNanos();
+    }
+
+    /**
+     * Get the total number of inventory updates.
+     *
+     * @return the number of updates
+     */
+    public static long getTotalUpdates() {
+        return UPDATE_SCHEDULER.getTotalUpdates();
+    }
+
+    /**
+     * Queue a refresh of an inventory. Queued refreshes are spread across ticks to stay under the
+     * refresh budget of each tick, and a new refresh replaces the pending refresh of the same inventory.
+     * This method should only be called from the main thread.
+     *
+     * @param inv     the inventory to refresh
+     * @param refresh the task refreshing the inventory
+     * @see #setRefreshBudget(long, TimeUnit)
+     * @see #setMaxRefreshDelay(int)
+     */
+    public static void queueRefresh(FastInv inv, Runnable refresh) {
+        REFRESH_QUEUE.add(Objects.requireNonNull(inv, "inv"), Objects.requireNonNull(refresh, "refresh"));
+    }
+
+    /**
+     * Set the maximum time spent each tick running the queued refreshes. By default, 2 milliseconds.
+     * At least one refresh is done each tick, and refreshes reaching the maximum delay are done
+     * even if the budget is exceeded.
+     *
+     * @param budget the maximum time spent each tick
+     * @param unit   the time unit of the budget
+     * @see #queueRefresh(FastInv, Runnable)
+     */
+    public static void setRefreshBudget(long budget, TimeUnit unit) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("The refresh budget must be positive");
+        }
+
+        REFRESH_QUEUE.setBudget(unit.toNanos(budget));
+    }
+
+    /**
+     * Set the maximum number of ticks a queued refresh can wait before being done. By default, 20 ticks.
+     *
+     * @param maxDelay the maximum delay, in ticks
+     * @see #queueRefresh(FastInv, Runnable)
+     */
+    public static void setMaxRefreshDelay(int maxDelay) {
+        if (maxDelay <= 0) {
+            throw new IllegalArgumentException("The maximum refresh delay must be positive");
+        }
+
+        REFRESH_QUEUE.setMaxDelay(maxDelay);
+    }
+
+    /**
+     * Get the number of queued refreshes not done yet.
+     *
+     * @return the number of pending refreshes
+     */
+    public static int getPendingRefreshes() {
+        return REFRESH_QUEUE.size();
+    }
+
+    /**
+     * Get the number of refreshes merged with a pending refresh of the same inventory.
+     *
+     * @return the number of coalesced refreshes
+     */
+    public static long getCoalescedRefreshes() {
+        return REFRESH_QUEUE.getCoalesced();
+    }
+
+    /**
+     * Get the number of times a refresh was delayed to the next tick, to stay under the refresh budget.
+     *
+     * @return the number of deferred refreshes
+     */
+    public static long getDeferredRefreshes() {
+        return REFRESH_QUEUE.getDeferred();
+    }
+
+    /**
+     * Get the number of refreshes done over the refresh budget, because they reached the maximum delay.
+     *
+     * @return the number of overdue refreshes
+     */
+    public static long getOverdueRefreshes() {
+        return REFRESH_QUEUE.getOverdue();
+    }
+
+    /**
+     * Get the FastInv currently open by a player, without checking its open inventory.
+     * This method should only be called from the main thread, as all the following open inventories methods.
+     *
+     * @param player the player
+     * @return the open FastInv, or null if the player has no FastInv open
+     */
+    public static FastInv getOpenInventory(HumanEntity player) {
+        return OPEN_MENUS.get(player);
+    }
+
+    /**
+     * Get the open FastInv inventories of the given class, including its subclasses.
+     * Each inventory is only returned once, even with multiple viewers.
+     *
+     * @param type the class of the inventories
+     * @param <T>  the type of the inventories
+     * @return the open inventories
+     */
+    public static <T extends FastInv> List<T> getOpenInventories(Class<T> type) {
+        return OPEN_MENUS.getInventories(type);
+    }
+
+    /**
+     * Get the open FastInv inventories with the given menu key.
+     * Each inventory is only returned once, even with multiple viewers.
+     *
+     * @param menuKey the menu key
+     * @return the open inventories
+     * @see FastInv#setMenuKey(String)
+     */
+    public static List<FastInv> getOpenInventories(String menuKey) {
+        return OPEN_MENUS.getInventories(menuKey);
+    }
+
+    /**
+     * Get the players viewing a FastInv of the given class, including its subclasses.
+     *
+     * @param type the class of the inventories
+     * @return the viewers
+     */
+    public static List<HumanEntity> getViewers(Class<? extends FastInv> type) {
+        return OPEN_MENUS.getViewers(type);
+    }
+
+    /**
+     * Get the players viewing a FastInv with the given menu key.
+     *
+     * @param menuKey the menu key
+     * @return the viewers
+     * @see FastInv#setMenuKey(String)
+     */
+    public static List<HumanEntity> getViewers(String menuKey) {
+        return OPEN_MENUS.getViewers(menuKey);
+    }
+
+    /**
+     * Get the number of players with a FastInv open.
+     *
+     * @return the number of viewers
+     */
+    public static int getViewerCount() {
+        return OPEN_MENUS.size();
+    }
+
+    /**
+     * Queue a refresh of all the open FastInv inventories of the given class, including its subclasses.
+     *
+     * @param type    the class of the inventories
+     * @param refresh the function refreshing an inventory
+     * @param <T>     the type of the inventories
+     * @see #queueRefresh(FastInv, Runnable)
+     */
+    public static <T extends FastInv> void refreshAll(Class<T> type, Consumer<? super T> refresh) {
+        Objects.requireNonNull(refresh, "refresh");
+
+        for (T inv : OPEN_MENUS.getInventories(type)) {
+            REFRESH_QUEUE.add(inv, () -> refresh.accept(inv));
+        }
+    }
+
+    /**
+     * Queue a refresh of all the open FastInv inventories with the given menu key.
+     *
+     * @param menuKey the menu key
+     * @param refresh the function refreshing an inventory
+     * @see #queueRefresh(FastInv, Runnable)
+     */
+    public static void refreshAll(String menuKey, Consumer<? super FastInv> refresh) {
+        Objects.requireNonNull(refresh, "refresh");
+
+        for (FastInv inv : OPEN_MENUS.getInventories(menuKey)) {
+            REFRESH_QUEUE.add(inv, () -> refresh.accept(inv));
+        }
+    }
+
+    /**
+     * Close all the open FastInv inventories, for example before reloading the plugin.
+     */
+    public static void closeAll() {
+        OPEN_MENUS.getAllViewers().forEach(HumanEntity::closeInventory);
+    }
+
+    /**
+     * Close all the open FastInv inventories of the given class, including its subclasses.
+     *
+     * @param type the class of the inventories
+     */
+    public static void closeAll(Class<? extends FastInv> type) {
+        OPEN_MENUS.getViewers(type).forEach(HumanEntity::closeInventory);
+    }
+
+    /**
+     * Close all the open FastInv inventories with the given menu key.
+     *
+     * @param menuKey the menu key
+     * @see FastInv#setMenuKey(String)
+     */
+    public static void closeAll(String menuKey) {
+        OPEN_MENUS.getViewers(menuKey).forEach(HumanEntity::closeInventory);
+    }
+
+    static Plugin getPlugin() {
+        Plugin plugin = registeredPlugin;
+
+        if (plugin == null) {
+            throw new IllegalStateException("FastInv is not registered");
+        }
+
+        return plugin;
+    }
+
+    static void trackInventory(FastInv inv) {
+        INVENTORIES.put(inv.getInventory(), new WeakReference<>(inv));
+    }
+
+    static void scheduleUpdates(FastInv inv, int period) {
+        UPDATE_SCHEDULER.schedule(inv, period);
+    }
+
+    static void cancelUpdates(FastInv inv) {
+        UPDATE_SCHEDULER.cancel(inv);
+    }
+
     public static final class InventoryListener implements Listener {
 
         private final Plugin plugin;
+        private final ClickThrottler clickThrottler = new ClickThrottler();
 
         public InventoryListener(Plugin plugin) {
             this.plugin = plugin;
@@ -77,13 +404,24 @@ public final class FastInvManager {
 
         @EventHandler
         public void onInventoryClick(InventoryClickEvent e) {
-            if (e.getInventory().getHolder() instanceof FastInv && e.getClickedInventory() != null) {
-                FastInv inv = (FastInv) e.getInventory().getHolder();
+            FastInv inv = getFastInv(e.getInventory());
 
+            if (inv != null && e.getClickedInventory() != null) {
                 boolean wasCancelled = e.isCancelled();
                 e.setCancelled(true);
 
+                ClickRateLimit limit = inv.getClickRateLimit() != null ? inv.getClickRateLimit() : clickRateLimit;
+
+                // Unlimited clicks skip the throttler, and the clock read it needs
+                if (!limit.isUnlimited() && !this.clickThrottler.tryAcquire(e.getWhoClicked().getEntityId(), limit, System.nanoTime())) {
+                    REJECTED_CLICKS.increment();
+                    inv.rejectClick();
+                    return;
+                }
+
+                long metricsStart = FastInvMetrics.start();
                 inv.handleClick(e);
+                FastInvMetrics.record(inv, FastInvMetrics.Operation.CLICK, metricsStart);
 
                 // This prevents un-canceling the event if another plugin canceled it before
                 if (!wasCancelled && !e.isCancelled()) {
@@ -94,13 +432,15 @@ public final class FastInvManager {
 
         @EventHandler
         public void onInventoryDrag(InventoryDragEvent e) {
-            if (e.getInventory().getHolder() instanceof FastInv) {
-                FastInv inv = (FastInv) e.getInventory().getHolder();
+            FastInv inv = getFastInv(e.getInventory());
 
+            if (inv != null) {
                 boolean wasCancelled = e.isCancelled();
                 e.setCancelled(true);
 
+                long metricsStart = FastInvMetrics.start();
                 inv.handleDrag(e);
+                FastInvMetrics.record(inv, FastInvMetrics.Operation.DRAG, metricsStart);
 
                 // This prevents un-canceling the event if another plugin canceled it before
                 if (!wasCancelled && !e.isCancelled()) {
@@ -111,28 +451,63 @@ public final class FastInvManager {
 
         @EventHandler
         public void onInventoryOpen(InventoryOpenEvent e) {
-            if (e.getInventory().getHolder() instanceof FastInv) {
-                FastInv inv = (FastInv) e.getInventory().getHolder();
+            FastInv inv = getFastInv(e.getInventory());
 
+            if (inv != null) {
+                long metricsStart = FastInvMetrics.start();
                 inv.handleOpen(e);
+                FastInvMetrics.record(inv, FastInvMetrics.Operation.OPEN, metricsStart);
+            }
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onInventoryOpened(InventoryOpenEvent e) {
+            FastInv inv = getFastInv(e.getInventory());
+
+            // Only once no plugin can cancel the opening anymore
+            if (inv != null) {
+                OPEN_MENUS.open(e.getPlayer(), inv);
+                inv.startUpdates();
             }
         }
 
         @EventHandler
         public void onInventoryClose(InventoryCloseEvent e) {
-            if (e.getInventory().getHolder() instanceof FastInv) {
-                FastInv inv = (FastInv) e.getInventory().getHolder();
+            FastInv inv = getFastInv(e.getInventory());
+
+            this.clickThrottler.release(e.getPlayer().getEntityId(), System.nanoTime());
+
+            if (inv != null) {
+                OPEN_MENUS.close(e.getPlayer());
+
+                long metricsStart = FastInvMetrics.start();
+                boolean reopen = inv.handleClose(e);
+                FastInvMetrics.record(inv, FastInvMetrics.Operation.CLOSE, metricsStart);
 
-                if (inv.handleClose(e)) {
+                if (reopen) {
                     Bukkit.getScheduler().runTask(this.plugin, () -> inv.open((Player) e.getPlayer()));
                 }
             }
         }
 
+        @EventHandler
+        public void onPlayerQuit(PlayerQuitEvent e) {
+            this.clickThrottler.remove(e.getPlayer().getEntityId());
+
+            OPEN_MENUS.close(e.getPlayer());
+        }
+
         @EventHandler
         public void onPluginDisable(PluginDisableEvent e) {
             if (e.getPlugin() == this.plugin) {
+                registeredPlugin = null;
                 REGISTERED.set(false);
+
+                // The update and refresh tasks are cancelled by Bukkit with the plugin
+                UPDATE_SCHEDULER.reset();
+                REFRESH_QUEUE.reset();
+                OPEN_MENUS.clear();
+                FastInvMetrics.unregisterMBean();
             }
         }
     }
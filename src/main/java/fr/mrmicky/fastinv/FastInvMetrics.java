@@ -0,0 +1,372 @@
+package fr.mrmicky.fastinv;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Optional timing metrics of the FastInv event handling, per inventory class: the number of
+ * opens, closes, clicks, drags and page changes, with a histogram of their execution time.
+ * Metrics are disabled by default, and recording them doesn't allocate memory.
+ * <p>
+ * Metrics can be read with {@link #snapshot()}, or with JMX after {@link #registerMBean()}.
+ */
+public final class FastInvMetrics {
+
+    // Bucket i counts the durations in [2^i, 2^(i+1)) nanoseconds, the last one also counts longer durations
+    private static final int BUCKETS = 32;
+    private static final int COUNT = 0;
+    private static final int TOTAL = 1;
+    private static final int MAX = 2;
+    private static final int FIRST_BUCKET = 3;
+
+    private static final List<ClassMetrics> ALL_METRICS = new CopyOnWriteArrayList<>();
+    private static final ClassValue<ClassMetrics> METRICS = new ClassValue<ClassMetrics>() {
+        @Override
+        protected ClassMetrics computeValue(Class<?> type) {
+            ClassMetrics metrics = new ClassMetrics(type.getName());
+            ALL_METRICS.add(metrics);
+            return metrics;
+        }
+    };
+
+    private static volatile boolean enabled;
+    private static ObjectName registeredName;
+
+    private FastInvMetrics() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Enable or disable the metrics recording.
+     *
+     * @param enabled true to record the metrics
+     */
+    public static void setEnabled(boolean enabled) {
+        FastInvMetrics.enabled = enabled;
+    }
+
+    /**
+     * Get if the metrics are recorded.
+     *
+     * @return true if the metrics are enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get a snapshot of the current metrics, with an entry per inventory class and operation.
+     *
+     * @return the metrics snapshots
+     */
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+
+        for (ClassMetrics metrics : ALL_METRICS) {
+            for (Operation operation : Operation.values()) {
+                AtomicLongArray values = metrics.operations[operation.ordinal()];
+
+                if (values.get(COUNT) > 0) {
+                    snapshots.add(new Snapshot(metrics.name, operation, values));
+                }
+            }
+        }
+
+        return snapshots;
+    }
+
+    /**
+     * Reset all the metrics to zero.
+     */
+    public static void reset() {
+        for (ClassMetrics metrics : ALL_METRICS) {
+            for (AtomicLongArray values : metrics.operations) {
+                for (int i = 0; i < values.length(); i++) {
+                    values.set(i, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Register a JMX MBean exposing these metrics, named
+     * {@code fr.mrmicky.fastinv:type=Metrics,plugin=<plugin name>}.
+     * It is unregistered automatically when the plugin is disabled.
+     *
+     * @throws IllegalStateException if FastInv is not registered, or the MBean can't be registered
+     */
+    public static synchronized void registerMBean() {
+        if (registeredName != null) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            ObjectName name = new ObjectName("fr.mrmicky.fastinv:type=Metrics,plugin="
+                    + ObjectName.quote(FastInvManager.getPlugin().getName()));
+            server.registerMBean(new MBean(), name);
+            registeredName = name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to register the metrics MBean", e);
+        }
+    }
+
+    /**
+     * Unregister the JMX MBean registered by {@link #registerMBean()}.
+     */
+    public static synchronized void unregisterMBean() {
+        if (registeredName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            // Already unregistered
+        }
+
+        registeredName = null;
+    }
+
+    /**
+     * Get the start time of an operation to record, to give later to {@link #record(FastInv, Operation, long)}.
+     *
+     * @return the current time, or 0 if the metrics are disabled
+     */
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    static void record(FastInv inv, Operation operation, long start) {
+        if (start == 0) {
+            return;
+        }
+
+        long duration = Math.max(System.nanoTime() - start, 0);
+        int bucket = Math.min(63 - Long.numberOfLeadingZeros(Math.max(duration, 1)), BUCKETS - 1);
+        AtomicLongArray values = METRICS.get(inv.getClass()).operations[operation.ordinal()];
+
+        values.incrementAndGet(COUNT);
+        values.addAndGet(TOTAL, duration);
+        values.incrementAndGet(FIRST_BUCKET + bucket);
+
+        long max;
+        while ((max = values.get(MAX)) < duration && !values.compareAndSet(MAX, max, duration)) {
+            // Retry with the new maximum
+        }
+    }
+
+    /**
+     * An operation of a FastInv inventory.
+     */
+    public enum Operation {
+        /**
+         * An inventory was opened by a player.
+         */
+        OPEN,
+        /**
+         * An inventory was closed by a player.
+         */
+        CLOSE,
+        /**
+         * A player clicked in an inventory.
+         */
+        CLICK,
+        /**
+         * A player dragged items in an inventory.
+         */
+        DRAG,
+        /**
+         * A page of a {@link PaginatedFastInv} was opened.
+         */
+        PAGE
+    }
+
+    /**
+     * The metrics of an operation for an inventory class, at the time of the snapshot.
+     */
+    public static final class Snapshot {
+
+        private final String inventoryClass;
+        private final Operation operation;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] buckets = new long[BUCKETS];
+
+        private Snapshot(String inventoryClass, Operation operation, AtomicLongArray values) {
+            this.inventoryClass = inventoryClass;
+            this.operation = operation;
+            this.count = values.get(COUNT);
+            this.totalNanos = values.get(TOTAL);
+            this.maxNanos = values.get(MAX);
+
+            for (int i = 0; i < BUCKETS; i++) {
+                this.buckets[i] = values.get(FIRST_BUCKET + i);
+            }
+        }
+
+        /**
+         * Get the name of the inventory class.
+         *
+         * @return the class name
+         */
+        public String getInventoryClass() {
+            return this.inventoryClass;
+        }
+
+        /**
+         * Get the recorded operation.
+         *
+         * @return the operation
+         */
+        public Operation getOperation() {
+            return this.operation;
+        }
+
+        /**
+         * Get the number of recorded operations.
+         *
+         * @return the number of operations
+         */
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * Get the total execution time of the operations.
+         *
+         * @return the total time, in nanoseconds
+         */
+        public long getTotalNanos() {
+            return this.totalNanos;
+        }
+
+        /**
+         * Get the mean execution time of the operations.
+         *
+         * @return the mean time, in nanoseconds
+         */
+        public long getMeanNanos() {
+            return this.count > 0 ? this.totalNanos / this.count : 0;
+        }
+
+        /**
+         * Get the longest execution time of the operations.
+         *
+         * @return the maximum time, in nanoseconds
+         */
+        public long getMaxNanos() {
+            return this.maxNanos;
+        }
+
+        /**
+         * Get the median execution time, with the precision of the histogram buckets.
+         *
+         * @return the median time, in nanoseconds
+         */
+        public long getP50Nanos() {
+            return getPercentileNanos(0.5);
+        }
+
+        /**
+         * Get the 99th percentile of the execution time, with the precision of the histogram buckets.
+         *
+         * @return the 99th percentile time, in nanoseconds
+         */
+        public long getP99Nanos() {
+            return getPercentileNanos(0.99);
+        }
+
+        /**
+         * Get a percentile of the execution time. The result is the upper bound of the histogram bucket
+         * containing the percentile, so it can be up to twice the exact value, and is capped to the maximum time.
+         *
+         * @param percentile the percentile, between 0 and 1
+         * @return the percentile time, in nanoseconds
+         */
+        public long getPercentileNanos(double percentile) {
+            long rank = (long) Math.ceil(percentile * this.count);
+            long seen = 0;
+
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += this.buckets[i];
+
+                if (seen >= rank && seen > 0) {
+                    return Math.min((1L << (i + 1)) - 1, this.maxNanos);
+                }
+            }
+
+            return this.maxNanos;
+        }
+
+        /**
+         * Get the histogram of the execution time: the element {@code i} is the number of
+         * operations that took between 2^i and 2^(i+1) nanoseconds.
+         *
+         * @return the histogram buckets
+         */
+        public long[] getBuckets() {
+            return this.buckets.clone();
+        }
+    }
+
+    /**
+     * The JMX interface of the FastInv metrics.
+     */
+    public interface FastInvMetricsMXBean {
+
+        boolean isEnabled();
+
+        void setEnabled(boolean enabled);
+
+        List<Snapshot> getSnapshots();
+
+        void reset();
+    }
+
+    private static final class MBean implements FastInvMetricsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return FastInvMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            FastInvMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public List<Snapshot> getSnapshots() {
+            return snapshot();
+        }
+
+        @Override
+        public void reset() {
+            FastInvMetrics.reset();
+        }
+    }
+
+    private static final class ClassMetrics {
+
+        private final String name;
+        private final AtomicLongArray[] operations = new AtomicLongArray[Operation.values().length];
+
+        private ClassMetrics(String name) {
+            this.name = name;
+
+            for (int i = 0; i < this.operations.length; i++) {
+                this.operations[i] = new AtomicLongArray(FIRST_BUCKET + BUCKETS);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * An immutable snapshot of a {@link FastInv} or {@link PaginatedFastInv}, built once and used to
+ * cheaply create new instances, for example one per player.
+ * <p>
+ * Each instance gets its own Bukkit inventory filled with a bulk copy of the template contents,
+ * and shares the click handlers of the template until it changes a slot.
+ * Only 'compact' inventories are supported, as subclasses could not keep their overridden methods.
+ * The handlers are shared as they are, so they should use the event (for example
+ * {@code e.getWhoClicked()}) instead of a reference to the source inventory.
+ *
+ * @param <T> the type of the inventories created by this template
+ */
+public final class FastInvTemplate<T extends FastInv> {
+
+    private final T prototype;
+    private final ItemStack[] contents;
+    private final BiFunction<T, ItemStack[], T> factory;
+
+    private FastInvTemplate(T source, BiFunction<T, ItemStack[], T> factory) {
+        Objects.requireNonNull(source, "source");
+
+        ItemStack[] contents = source.getInventory().getContents();
+
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = contents[i] != null ? contents[i].clone() : null;
+        }
+
+        this.contents = contents;
+        this.factory = factory;
+        this.prototype = factory.apply(source, contents);
+    }
+
+    /**
+     * Create a template from the current state of a FastInv.
+     * Later changes to the given FastInv do not affect the template.
+     *
+     * @param inv the FastInv to create the template from
+     * @return the new template
+     * @throws IllegalArgumentException if the FastInv is an instance of a subclass
+     */
+    public static FastInvTemplate<FastInv> of(FastInv inv) {
+        checkCompact(inv);
+
+        if (inv instanceof PaginatedFastInv) {
+            return new FastInvTemplate<>(inv, (source, contents) -> new PaginatedFastInv((PaginatedFastInv) source, contents));
+        }
+
+        return new FastInvTemplate<>(inv, FastInv::new);
+    }
+
+    /**
+     * Create a template from the current state of a PaginatedFastInv, including its paginated content.
+     * Later changes to the given PaginatedFastInv do not affect the template.
+     *
+     * @param inv the PaginatedFastInv to create the template from
+     * @return the new template
+     * @throws IllegalArgumentException if the PaginatedFastInv is an instance of a subclass
+     */
+    public static FastInvTemplate<PaginatedFastInv> of(PaginatedFastInv inv) {
+        checkCompact(inv);
+
+        return new FastInvTemplate<>(inv, PaginatedFastInv::new);
+    }
+
+    /**
+     * Create a new inventory from this template.
+     *
+     * @return the new inventory
+     */
+    public T instantiate() {
+        return this.factory.apply(this.prototype, this.contents);
+    }
+
+    private static void checkCompact(FastInv inv) {
+        Objects.requireNonNull(inv, "inv");
+
+        Class<?> type = inv.getClass();
+
+        if (type != FastInv.class && type != PaginatedFastInv.class) {
+            throw new IllegalArgumentException("Templates only support FastInv and PaginatedFastInv instances, not " + type.getName());
+        }
+    }
+}
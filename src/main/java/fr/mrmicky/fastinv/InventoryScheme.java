@@ -4,6 +4,7 @@ import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +17,7 @@ public class InventoryScheme {
     private final Map<Character, ItemStack> items = new HashMap<>();
     private final Map<Character, Consumer<InventoryClickEvent>> handlers = new HashMap<>();
     private char paginationChar;
+    private CompiledScheme compiled;
 
     /**
      * Add a mask to this scheme including all sort of characters.
@@ -26,7 +28,8 @@ public class InventoryScheme {
      */
     public InventoryScheme mask(String mask) {
         Objects.requireNonNull(mask);
-        this.masks.add(mask.length() > 9 ? mask.substring(0, 10) : mask);
+        this.masks.add(mask.length() > 9 ? mask.substring(0, 9) : mask);
+        this.compiled = null;
 
         return this;
     }
@@ -59,6 +62,8 @@ public class InventoryScheme {
         if (handler != null) {
             this.handlers.put(character, handler);
         }
+
+        this.compiled = null;
         return this;
     }
 
@@ -81,6 +86,7 @@ public class InventoryScheme {
      */
     public InventoryScheme bindPagination(char character) {
         this.paginationChar = character;
+        this.compiled = null;
         return this;
     }
 
@@ -93,16 +99,28 @@ public class InventoryScheme {
     public InventoryScheme unbindItem(char character) {
         this.items.remove(character);
         this.handlers.remove(character);
+        this.compiled = null;
         return this;
     }
 
     /**
-     * Apply the current inventory scheme to the FastInv instance.
+     * Compile this scheme into an immutable layout, that can be applied to inventories
+     * without parsing the masks again. Later changes to this scheme don't affect the compiled layout.
      *
-     * @param inv the FastInv instance to apply this scheme to
+     * @return the compiled layout
      */
-    public void apply(FastInv inv) {
-        List<Integer> paginationSlots = new ArrayList<>();
+    public CompiledScheme compile() {
+        CompiledScheme compiled = this.compiled;
+
+        if (compiled != null) {
+            return compiled;
+        }
+
+        int size = 9 * this.masks.size();
+        ItemStack[] items = new ItemStack[size];
+        Consumer<InventoryClickEvent>[] handlers = newHandlerArray(size);
+        int[] paginationSlots = new int[size];
+        int paginationCount = 0;
 
         for (int line = 0; line < this.masks.size(); line++) {
             String mask = this.masks.get(line);
@@ -111,21 +129,30 @@ public class InventoryScheme {
                 char c = mask.charAt(slot);
 
                 if (c == this.paginationChar) {
-                    paginationSlots.add(9 * line + slot);
+                    paginationSlots[paginationCount++] = 9 * line + slot;
                     continue;
                 }
 
-                ItemStack item = this.items.get(c);
-                Consumer<InventoryClickEvent> handler = this.handlers.get(c);
-
-                if (item != null) {
-                    inv.setItem(9 * line + slot, item, handler);
-                }
+                items[9 * line + slot] = this.items.get(c);
+                handlers[9 * line + slot] = items[9 * line + slot] != null ? this.handlers.get(c) : null;
             }
         }
 
-        if (inv instanceof PaginatedFastInv && !paginationSlots.isEmpty()) {
-            ((PaginatedFastInv) inv).setContentSlots(paginationSlots);
-        }
+        return this.compiled = new CompiledScheme(items, handlers, Arrays.copyOf(paginationSlots, paginationCount));
+    }
+
+    /**
+     * Apply the current inventory scheme to the FastInv instance.
+     *
+     * @param inv the FastInv instance to apply this scheme to
+     * @see #compile()
+     */
+    public void apply(FastInv inv) {
+        compile().apply(inv);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<InventoryClickEvent>[] newHandlerArray(int size) {
+        return (Consumer<InventoryClickEvent>[]) new Consumer[size];
     }
 }
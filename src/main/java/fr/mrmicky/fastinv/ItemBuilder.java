@@ -23,33 +23,141 @@
  */
 package fr.mrmicky.fastinv;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Color;
 import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.Damageable;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.LeatherArmorMeta;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Simple {@link ItemStack} builder.
+ * <p>
+ * The item meta is only retrieved once for all the meta changes, and is applied
+ * to the item when it is built, or before the item itself is edited.
  *
  * @author MrMicky
  */
 public class ItemBuilder {
 
+    private static final Map<InternKey, InternedItem> INTERNED = new HashMap<>();
+    private static final ReferenceQueue<ItemStack> UNUSED_INTERNED = new ReferenceQueue<>();
+    private static final LongAdder INTERNED_DUPLICATES = new LongAdder();
+    private static final boolean DAMAGEABLE_META = isDamageableMetaSupported();
+
     private final ItemStack item;
 
+    private ItemMeta meta;
+
     public static ItemBuilder copyOf(ItemStack item) {
         return new ItemBuilder(item.clone());
     }
 
+    /**
+     * Get the canonical instance of an item: the first interned item equal to the given item.
+     * Interned items are shared, so they must not be modified. They are kept in the registry
+     * as long as they are used somewhere else.
+     *
+     * @param item the item to intern
+     * @return the canonical instance equal to the given item
+     */
+    public static ItemStack intern(ItemStack item) {
+        Objects.requireNonNull(item, "item");
+
+        return intern(item, item.hasItemMeta() ? item.getItemMeta() : null, item::clone);
+    }
+
+    /**
+     * Get the number of times an interned item was replaced by an equal canonical instance.
+     *
+     * @return the number of duplicated items removed by {@link #intern(ItemStack)}
+     */
+    public static long getInternedDuplicates() {
+        return INTERNED_DUPLICATES.sum();
+    }
+
+    /**
+     * Get the number of distinct interned items still in use.
+     *
+     * @return the number of canonical items
+     */
+    public static int getInternedItems() {
+        synchronized (INTERNED) {
+            removeUnusedInterned();
+            return INTERNED.size();
+        }
+    }
+
+    private static ItemStack intern(ItemStack item, ItemMeta meta, Supplier<ItemStack> canonicalFactory) {
+        InternKey key = new InternKey(item.getType(), item.getAmount(), getDurability(item, meta), meta);
+
+        synchronized (INTERNED) {
+            removeUnusedInterned();
+
+            InternedItem interned = INTERNED.get(key);
+            ItemStack canonical = interned != null ? interned.get() : null;
+
+            if (canonical != null) {
+                INTERNED_DUPLICATES.increment();
+                return canonical;
+            }
+
+            // Copy the meta, so later changes to the given item or builder don't affect the key
+            canonical = canonicalFactory.get();
+            InternKey ownKey = new InternKey(key.type, key.amount, key.durability, key.meta != null ? key.meta.clone() : null);
+            INTERNED.put(ownKey, new InternedItem(ownKey, canonical));
+            return canonical;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static short getDurability(ItemStack item, ItemMeta meta) {
+        // Since 1.13 the damage is in the meta, and the pending meta of a builder isn't applied to its item yet
+        if (DAMAGEABLE_META && meta instanceof Damageable) {
+            return (short) ((Damageable) meta).getDamage();
+        }
+
+        return item.getDurability();
+    }
+
+    private static boolean isDamageableMetaSupported() {
+        try {
+            Class.forName("org.bukkit.inventory.meta.Damageable");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static void removeUnusedInterned() {
+        Reference<? extends ItemStack> ref;
+
+        while ((ref = UNUSED_INTERNED.poll()) != null) {
+            InternKey key = ((InternedItem) ref).key;
+
+            // The key may already be used by a new canonical item
+            if (INTERNED.get(key) == ref) {
+                INTERNED.remove(key);
+            }
+        }
+    }
+
     public ItemBuilder(Material material) {
         this(new ItemStack(material));
     }
@@ -59,19 +167,20 @@ public class ItemBuilder {
     }
 
     public ItemBuilder edit(Consumer<ItemStack> function) {
+        applyMeta();
         function.accept(this.item);
         return this;
     }
 
     public ItemBuilder meta(Consumer<ItemMeta> metaConsumer) {
-        return edit(item -> {
-            ItemMeta meta = item.getItemMeta();
+        if (this.meta == null) {
+            this.meta = this.item.getItemMeta();
+        }
 
-            if (meta != null) {
-                metaConsumer.accept(meta);
-                item.setItemMeta(meta);
-            }
-        });
+        if (this.meta != null) {
+            metaConsumer.accept(this.meta);
+        }
+        return this;
     }
 
     public <T extends ItemMeta> ItemBuilder meta(Class<T> metaClass, Consumer<T> metaConsumer) {
@@ -184,6 +293,87 @@ public class ItemBuilder {
     }
 
     public ItemStack build() {
+        applyMeta();
         return this.item;
     }
+
+    /**
+     * Get the canonical instance of the item of this builder, shared with all the equal interned items.
+     * The item is only built when no equal item is interned yet. The returned item must not be modified.
+     *
+     * @return the canonical instance of the built item
+     * @see #intern(ItemStack)
+     */
+    public ItemStack intern() {
+        // The pending meta already holds all the meta of the item, so it is used without being copied
+        ItemMeta meta = this.meta != null ? this.meta : this.item.hasItemMeta() ? this.item.getItemMeta() : null;
+
+        return intern(this.item, meta, () -> build().clone());
+    }
+
+    /**
+     * Build the item and parse the {@code {placeholder}} tokens of its name and lore,
+     * to render it for each player.
+     *
+     * @return the new item template
+     * @see ItemTemplate#render(org.bukkit.entity.Player)
+     */
+    public ItemTemplate template() {
+        return new ItemTemplate(build());
+    }
+
+    private void applyMeta() {
+        if (this.meta != null) {
+            this.item.setItemMeta(this.meta);
+            this.meta = null;
+        }
+    }
+
+    private static final class InternKey {
+
+        private final Material type;
+        private final int amount;
+        private final short durability;
+        private final ItemMeta meta;
+        private final int hash;
+
+        private InternKey(Material type, int amount, short durability, ItemMeta meta) {
+            this.type = type;
+            this.amount = amount;
+            this.durability = durability;
+            // An empty meta is the same as no meta, like for ItemStack#equals
+            this.meta = meta != null && !Bukkit.getItemFactory().equals(meta, null) ? meta : null;
+            this.hash = 31 * (31 * (31 * type.hashCode() + amount) + durability) + Objects.hashCode(this.meta);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof InternKey)) {
+                return false;
+            }
+
+            InternKey key = (InternKey) o;
+            return this.hash == key.hash && this.type == key.type && this.amount == key.amount
+                    && this.durability == key.durability && Bukkit.getItemFactory().equals(this.meta, key.meta);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private static final class InternedItem extends WeakReference<ItemStack> {
+
+        private final InternKey key;
+
+        private InternedItem(InternKey key, ItemStack item) {
+            super(item, UNUSED_INTERNED);
+            this.key = key;
+        }
+    }
 }
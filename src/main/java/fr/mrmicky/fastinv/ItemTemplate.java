@@ -0,0 +1,259 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * An item with a name and lore personalized for each player, using {@code {placeholder}} tokens.
+ * The name and lore are parsed once into static and dynamic parts, and rendering an item for a
+ * player only evaluates the placeholders, each one once per render.
+ * <p>
+ * The last item rendered for each player is cached, and reused as long as the placeholder
+ * values for this player don't change. Rendered items are shared, so they must not be modified.
+ * <p>
+ * The per-player cache is not synchronized, so items must only be rendered on the main thread.
+ * In particular, a template can't be rendered by a content source prefetched off the main thread
+ * with {@link PaginatedFastInv#setPrefetchDepth(int)}.
+ *
+ * @see ItemBuilder#template()
+ */
+public final class ItemTemplate {
+
+    private final Map<Player, Rendered> cache = new WeakHashMap<>();
+    private final List<String> placeholders = new ArrayList<>();
+
+    private final ItemStack item;
+    private final Text name;
+    private final Text[] lore;
+    private final Function<Player, String>[] resolvers;
+
+    private long hits;
+    private long renders;
+
+    @SuppressWarnings("unchecked")
+    ItemTemplate(ItemStack item) {
+        this.item = Objects.requireNonNull(item, "item").clone();
+
+        ItemMeta meta = this.item.getItemMeta();
+
+        this.name = meta != null && meta.hasDisplayName() ? parse(meta.getDisplayName()) : null;
+
+        List<String> lore = meta != null && meta.hasLore() ? meta.getLore() : null;
+        this.lore = new Text[lore != null ? lore.size() : 0];
+
+        for (int i = 0; i < this.lore.length; i++) {
+            this.lore[i] = parse(lore.get(i));
+        }
+
+        this.resolvers = new Function[this.placeholders.size()];
+    }
+
+    /**
+     * Set the function giving the value of a placeholder for a player.
+     * Unset placeholders are kept as is in the rendered items.
+     *
+     * @param placeholder the name of the placeholder, without the braces
+     * @param resolver    the function giving the value of the placeholder for a player
+     * @return this template instance
+     * @throws IllegalArgumentException if the placeholder isn't used in the name or lore
+     */
+    public ItemTemplate placeholder(String placeholder, Function<Player, String> resolver) {
+        int index = this.placeholders.indexOf(placeholder);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown placeholder: " + placeholder);
+        }
+
+        this.resolvers[index] = Objects.requireNonNull(resolver, "resolver");
+        this.cache.clear();
+        return this;
+    }
+
+    /**
+     * Render the item for a player. If the placeholder values didn't change since the last
+     * render for this player, the previously rendered item is returned.
+     * This method must only be called from the main thread.
+     *
+     * @param player the player to render the item for
+     * @return the rendered item, which must not be modified
+     */
+    public ItemStack render(Player player) {
+        String[] values = new String[this.resolvers.length];
+
+        for (int i = 0; i < values.length; i++) {
+            Function<Player, String> resolver = this.resolvers[i];
+
+            values[i] = resolver != null ? resolver.apply(player) : '{' + this.placeholders.get(i) + '}';
+        }
+
+        Rendered previous = this.cache.get(player);
+
+        if (previous != null && Arrays.equals(previous.values, values)) {
+            this.hits++;
+            return previous.item;
+        }
+
+        ItemStack rendered = this.item.clone();
+        ItemMeta meta = rendered.getItemMeta();
+
+        if (meta != null) {
+            if (this.name != null) {
+                meta.setDisplayName(this.name.render(values));
+            }
+
+            if (this.lore.length > 0) {
+                List<String> lore = new ArrayList<>(this.lore.length);
+
+                for (Text line : this.lore) {
+                    lore.add(line.render(values));
+                }
+
+                meta.setLore(lore);
+            }
+
+            rendered.setItemMeta(meta);
+        }
+
+        this.renders++;
+        this.cache.put(player, new Rendered(values, rendered));
+        return rendered;
+    }
+
+    /**
+     * Remove the cached item of a player, for example when it leaves the server.
+     *
+     * @param player the player
+     */
+    public void invalidate(Player player) {
+        this.cache.remove(player);
+    }
+
+    /**
+     * Remove the cached items of all players.
+     */
+    public void invalidateAll() {
+        this.cache.clear();
+    }
+
+    /**
+     * Get the names of the placeholders used in the name and lore of this template.
+     *
+     * @return the placeholder names
+     */
+    public List<String> getPlaceholders() {
+        return new ArrayList<>(this.placeholders);
+    }
+
+    /**
+     * Get the number of renders that reused the cached item of a player.
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        return this.hits;
+    }
+
+    /**
+     * Get the number of renders that created a new item.
+     *
+     * @return the number of rendered items
+     */
+    public long getRenderCount() {
+        return this.renders;
+    }
+
+    private Text parse(String text) {
+        List<String> parts = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        int partStart = 0;
+        int search = 0;
+        int open;
+
+        while ((open = text.indexOf('{', search)) >= 0) {
+            int close = text.indexOf('}', open + 1);
+
+            if (close < 0) {
+                break;
+            }
+
+            String placeholder = text.substring(open + 1, close);
+            int nested = placeholder.lastIndexOf('{');
+
+            if (nested >= 0) {
+                search = open + 1 + nested;
+                continue;
+            }
+
+            // Only parse valid placeholder names, so other braces are kept as static text
+            if (placeholder.isEmpty() || placeholder.indexOf(' ') >= 0) {
+                search = close + 1;
+                continue;
+            }
+
+            int index = this.placeholders.indexOf(placeholder);
+
+            if (index < 0) {
+                index = this.placeholders.size();
+                this.placeholders.add(placeholder);
+            }
+
+            parts.add(text.substring(partStart, open));
+            indexes.add(index);
+            partStart = search = close + 1;
+        }
+
+        parts.add(text.substring(partStart));
+
+        return new Text(parts.toArray(new String[0]), indexes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * A parsed text: the static parts, with a placeholder between each of them.
+     */
+    private static final class Text {
+
+        private final String[] parts;
+        private final int[] placeholders;
+        private final int staticLength;
+
+        private Text(String[] parts, int[] placeholders) {
+            this.parts = parts;
+            this.placeholders = placeholders;
+            this.staticLength = Arrays.stream(parts).mapToInt(String::length).sum();
+        }
+
+        private String render(String[] values) {
+            if (this.placeholders.length == 0) {
+                return this.parts[0];
+            }
+
+            StringBuilder builder = new StringBuilder(this.staticLength + 16 * this.placeholders.length);
+
+            for (int i = 0; i < this.placeholders.length; i++) {
+                builder.append(this.parts[i]).append(values[this.placeholders[i]]);
+            }
+
+            return builder.append(this.parts[this.placeholders.length]).toString();
+        }
+    }
+
+    private static final class Rendered {
+
+        private final String[] values;
+        private final ItemStack item;
+
+        private Rendered(String[] values, ItemStack item) {
+            this.values = values;
+            this.item = item;
+        }
+    }
+}
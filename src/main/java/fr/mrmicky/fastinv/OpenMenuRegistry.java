@@ -0,0 +1,162 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.entity.HumanEntity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The FastInv inventories currently open, indexed by viewer, by inventory class and by menu key.
+ * It is maintained by the open and close events of {@link FastInvManager.InventoryListener}.
+ * The listener updates it on the main thread, and it is not safe to read from another thread.
+ */
+final class OpenMenuRegistry {
+
+    private final Map<UUID, Viewer> viewers = new HashMap<>();
+    // Viewers by exact inventory class, and by menu key
+    private final Map<Class<?>, Map<UUID, Viewer>> byClass = new HashMap<>();
+    private final Map<String, Map<UUID, Viewer>> byKey = new HashMap<>();
+
+    void open(HumanEntity player, FastInv inv) {
+        close(player);
+
+        Viewer viewer = new Viewer(player, inv, inv.getMenuKey());
+
+        this.viewers.put(player.getUniqueId(), viewer);
+        this.byClass.computeIfAbsent(inv.getClass(), c -> new LinkedHashMap<>()).put(player.getUniqueId(), viewer);
+
+        if (viewer.key != null) {
+            this.byKey.computeIfAbsent(viewer.key, k -> new LinkedHashMap<>()).put(player.getUniqueId(), viewer);
+        }
+    }
+
+    void close(HumanEntity player) {
+        UUID uuid = player.getUniqueId();
+        Viewer viewer = this.viewers.remove(uuid);
+
+        if (viewer == null) {
+            return;
+        }
+
+        remove(this.byClass, viewer.inv.getClass(), uuid);
+
+        if (viewer.key != null) {
+            remove(this.byKey, viewer.key, uuid);
+        }
+    }
+
+    void clear() {
+        this.viewers.clear();
+        this.byClass.clear();
+        this.byKey.clear();
+    }
+
+    FastInv get(HumanEntity player) {
+        Viewer viewer = this.viewers.get(player.getUniqueId());
+
+        return viewer != null ? viewer.inv : null;
+    }
+
+    int size() {
+        return this.viewers.size();
+    }
+
+    List<HumanEntity> getViewers(Class<? extends FastInv> type) {
+        List<HumanEntity> players = new ArrayList<>();
+
+        // Only a few distinct classes are open, so matching subclasses is cheap
+        for (Map.Entry<Class<?>, Map<UUID, Viewer>> entry : this.byClass.entrySet()) {
+            if (type.isAssignableFrom(entry.getKey())) {
+                entry.getValue().values().forEach(viewer -> players.add(viewer.player));
+            }
+        }
+
+        return players;
+    }
+
+    List<HumanEntity> getViewers(String key) {
+        Map<UUID, Viewer> keyViewers = this.byKey.get(key);
+
+        if (keyViewers == null) {
+            return Collections.emptyList();
+        }
+
+        List<HumanEntity> players = new ArrayList<>(keyViewers.size());
+        keyViewers.values().forEach(viewer -> players.add(viewer.player));
+        return players;
+    }
+
+    <T extends FastInv> List<T> getInventories(Class<T> type) {
+        Set<FastInv> inventories = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<T> result = new ArrayList<>();
+
+        for (Map.Entry<Class<?>, Map<UUID, Viewer>> entry : this.byClass.entrySet()) {
+            if (type.isAssignableFrom(entry.getKey())) {
+                for (Viewer viewer : entry.getValue().values()) {
+                    if (inventories.add(viewer.inv)) {
+                        result.add(type.cast(viewer.inv));
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    List<FastInv> getInventories(String key) {
+        Map<UUID, Viewer> keyViewers = this.byKey.get(key);
+
+        if (keyViewers == null) {
+            return Collections.emptyList();
+        }
+
+        Set<FastInv> inventories = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<FastInv> result = new ArrayList<>();
+
+        for (Viewer viewer : keyViewers.values()) {
+            if (inventories.add(viewer.inv)) {
+                result.add(viewer.inv);
+            }
+        }
+
+        return result;
+    }
+
+    List<HumanEntity> getAllViewers() {
+        List<HumanEntity> players = new ArrayList<>(this.viewers.size());
+        this.viewers.values().forEach(viewer -> players.add(viewer.player));
+        return players;
+    }
+
+    private static <K> void remove(Map<K, Map<UUID, Viewer>> index, K key, UUID uuid) {
+        Map<UUID, Viewer> indexViewers = index.get(key);
+
+        if (indexViewers != null) {
+            indexViewers.remove(uuid);
+
+            if (indexViewers.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static final class Viewer {
+
+        private final HumanEntity player;
+        private final FastInv inv;
+        private final String key;
+
+        private Viewer(HumanEntity player, FastInv inv, String key) {
+            this.player = player;
+            this.inv = inv;
+            this.key = key;
+        }
+    }
+}
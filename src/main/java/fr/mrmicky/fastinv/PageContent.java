@@ -0,0 +1,184 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * The paginated content of one or more {@link PaginatedFastInv}: a list of items and their click handlers.
+ * <p>
+ * A single PageContent can be shared by many inventories, for example one per player, while each
+ * inventory keeps its own current page, order and filter. Sorted and filtered views of the content are
+ * computed once as arrays of content indexes, cached for each order and filter until the content is modified.
+ * The view cache is not synchronized, so a PageContent must only be used on the main thread.
+ * It is never prefetched by {@link PaginatedFastInv#setPrefetchDepth(int)}.
+ *
+ * @see PaginatedFastInv#setPageContent(PageContent)
+ */
+public final class PageContent implements PageSource {
+
+    private static final int MAX_CACHED_VIEWS = 16;
+
+    private final List<ItemStack> items;
+    private final List<Consumer<InventoryClickEvent>> handlers;
+
+    private final Map<ViewKey, int[]> views = new LinkedHashMap<ViewKey, int[]>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ViewKey, int[]> eldest) {
+            return size() > MAX_CACHED_VIEWS;
+        }
+    };
+
+    /**
+     * Create a new empty content.
+     */
+    public PageContent() {
+        this(new ArrayList<>(), new ArrayList<>());
+    }
+
+    private PageContent(List<ItemStack> items, List<Consumer<InventoryClickEvent>> handlers) {
+        this.items = items;
+        this.handlers = handlers;
+    }
+
+    /**
+     * Add an item with a click handler to the content.
+     *
+     * @param item    the item to add
+     * @param handler the click handler associated to this item, can be null
+     */
+    public void add(ItemStack item, Consumer<InventoryClickEvent> handler) {
+        this.items.add(item);
+        this.handlers.add(handler);
+        this.views.clear();
+    }
+
+    /**
+     * Add a list of items with click handlers to the content.
+     * The list of click handlers must have the same size as the list of items.
+     *
+     * @param items    the list of items to add
+     * @param handlers the list of click handlers associated to the items
+     */
+    public void addAll(Collection<ItemStack> items, Collection<Consumer<InventoryClickEvent>> handlers) {
+        Objects.requireNonNull(items, "items");
+        Objects.requireNonNull(handlers, "handlers");
+
+        if (items.size() != handlers.size()) {
+            throw new IllegalArgumentException("The content and handlers lists must have the same size");
+        }
+
+        this.items.addAll(items);
+        this.handlers.addAll(handlers);
+        this.views.clear();
+    }
+
+    /**
+     * Set the item at the specified index of the content, with a click handler.
+     *
+     * @param index   the index of the item
+     * @param item    the item to set
+     * @param handler the click handler associated to this item, can be null
+     */
+    public void set(int index, ItemStack item, Consumer<InventoryClickEvent> handler) {
+        this.items.set(index, item);
+        this.handlers.set(index, handler);
+        this.views.clear();
+    }
+
+    /**
+     * Remove all the items and their click handlers.
+     */
+    public void clear() {
+        this.items.clear();
+        this.handlers.clear();
+        this.views.clear();
+    }
+
+    @Override
+    public int size() {
+        return this.items.size();
+    }
+
+    @Override
+    public void fetch(int fromIndex, int toIndex, BiConsumer<ItemStack, Consumer<InventoryClickEvent>> consumer) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            consumer.accept(this.items.get(i), this.handlers.get(i));
+        }
+    }
+
+    /**
+     * Get the content indexes sorted by the order and matching the filter, computed once and cached.
+     *
+     * @return the content indexes, or null if the content should be displayed unchanged
+     */
+    int[] view(Comparator<ItemStack> order, Predicate<ItemStack> filter) {
+        if (order == null && filter == null) {
+            return null;
+        }
+
+        return this.views.computeIfAbsent(new ViewKey(order, filter), this::computeView);
+    }
+
+    PageContent copy() {
+        return new PageContent(new ArrayList<>(this.items), new ArrayList<>(this.handlers));
+    }
+
+    private int[] computeView(ViewKey key) {
+        IntStream indexes = IntStream.range(0, this.items.size());
+
+        if (key.filter != null) {
+            indexes = indexes.filter(i -> key.filter.test(this.items.get(i)));
+        }
+
+        if (key.order == null) {
+            return indexes.toArray();
+        }
+
+        return indexes.boxed()
+                .sorted((a, b) -> key.order.compare(this.items.get(a), this.items.get(b)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static final class ViewKey {
+
+        private final Comparator<ItemStack> order;
+        private final Predicate<ItemStack> filter;
+
+        private ViewKey(Comparator<ItemStack> order, Predicate<ItemStack> filter) {
+            this.order = order;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof ViewKey)) {
+                return false;
+            }
+
+            ViewKey key = (ViewKey) o;
+            return this.order == key.order && this.filter == key.filter;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.order) + System.identityHashCode(this.filter);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+
+/**
+ * Source of the paginated content of a {@link PaginatedFastInv}.
+ * Only the items of the displayed page are requested, so the content doesn't need to be built in advance.
+ *
+ * @see PaginatedFastInv#setContentSource(PageSource)
+ */
+public interface PageSource {
+
+    /**
+     * Create a page source building each item and click handler from its index when its page is displayed.
+     *
+     * @param size     a supplier of the total number of items
+     * @param items    a function to get the item at an index
+     * @param handlers a function to get the click handler of the item at an index, the handler can be null
+     * @return the new page source
+     */
+    static PageSource of(IntSupplier size, IntFunction<ItemStack> items, IntFunction<Consumer<InventoryClickEvent>> handlers) {
+        Objects.requireNonNull(size, "size");
+        Objects.requireNonNull(items, "items");
+        Objects.requireNonNull(handlers, "handlers");
+
+        return new PageSource() {
+            @Override
+            public int size() {
+                return size.getAsInt();
+            }
+
+            @Override
+            public void fetch(int fromIndex, int toIndex, BiConsumer<ItemStack, Consumer<InventoryClickEvent>> consumer) {
+                for (int i = fromIndex; i < toIndex; i++) {
+                    consumer.accept(items.apply(i), handlers.apply(i));
+                }
+            }
+        };
+    }
+
+    /**
+     * Create a page source building each item from its index when its page is displayed, with no click handler.
+     *
+     * @param size  a supplier of the total number of items
+     * @param items a function to get the item at an index
+     * @return the new page source
+     */
+    static PageSource of(IntSupplier size, IntFunction<ItemStack> items) {
+        return of(size, items, i -> null);
+    }
+
+    /**
+     * Get the total number of items of the content.
+     *
+     * @return the number of items
+     */
+    int size();
+
+    /**
+     * Get the items and click handlers between two indexes, in order.
+     *
+     * @param fromIndex the index of the first item (inclusive)
+     * @param toIndex   the index of the last item (exclusive)
+     * @param consumer  the consumer to call with each item and its click handler, which can be null
+     */
+    void fetch(int fromIndex, int toIndex, BiConsumer<ItemStack, Consumer<InventoryClickEvent>> consumer);
+}
@@ -3,15 +3,22 @@ package fr.mrmicky.fastinv;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -20,8 +27,14 @@ import java.util.stream.IntStream;
  */
 public class PaginatedFastInv extends FastInv {
 
-    private final List<ItemStack> contentItems = new ArrayList<>();
-    private final List<Consumer<InventoryClickEvent>> contentHandlers = new ArrayList<>();
+    private final PageSource contentView = new ContentView();
+
+    private PageContent content = new PageContent();
+    private boolean sharedContent;
+    private Comparator<ItemStack> contentOrder;
+    private Predicate<ItemStack> contentFilter;
+
+    private PageSource contentSource = this.contentView;
 
     private List<Integer> contentSlots;
     private int page = 1;
@@ -31,6 +44,17 @@ public class PaginatedFastInv extends FastInv {
     private int previousPageSlot = -1;
     private int nextPageSlot = -1;
 
+    private RenderCache renderCache;
+
+    private final Map<Integer, CompletableFuture<PrefetchedPage>> prefetchedPages = new HashMap<>();
+    private int prefetchDepth;
+    private int prefetchVersion;
+
+    private PageLoader pageLoader;
+    private IntSupplier pageLoaderSize;
+    private ItemStack loadingItem;
+    private int pageLoadId;
+
     /**
      * Create a new FastInv with a custom size.
      *
@@ -81,6 +105,35 @@ public class PaginatedFastInv extends FastInv {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Create a copy of a PaginatedFastInv with the given contents, used by {@link FastInvTemplate}.
+     *
+     * @param source   the PaginatedFastInv to copy
+     * @param contents the contents of the new inventory
+     */
+    PaginatedFastInv(PaginatedFastInv source, ItemStack[] contents) {
+        super(source, contents);
+
+        // The content is shared with the source until one of them modifies it
+        this.content = source.content;
+        this.sharedContent = true;
+        source.sharedContent = true;
+        this.contentOrder = source.contentOrder;
+        this.contentFilter = source.contentFilter;
+        this.contentSource = source.contentSource == source.contentView ? this.contentView : source.contentSource;
+        this.contentSlots = new ArrayList<>(source.contentSlots);
+        this.page = source.page;
+        this.previousPageItem = source.previousPageItem;
+        this.nextPageItem = source.nextPageItem;
+        this.previousPageSlot = source.previousPageSlot;
+        this.nextPageSlot = source.nextPageSlot;
+        this.renderCache = source.renderCache;
+        this.prefetchDepth = source.prefetchDepth;
+        this.pageLoader = source.pageLoader;
+        this.pageLoaderSize = source.pageLoaderSize;
+        this.loadingItem = source.loadingItem;
+    }
+
     /**
      * Add an item to the paginated content with no click handler, the item will be added to the next available slot.
      *
@@ -97,8 +150,7 @@ public class PaginatedFastInv extends FastInv {
      * @param handler the click handler associated to this item
      */
     public void addContent(ItemStack item, Consumer<InventoryClickEvent> handler) {
-        this.contentItems.add(item);
-        this.contentHandlers.add(handler);
+        writableContent().add(item, handler);
     }
 
     /**
@@ -118,15 +170,7 @@ public class PaginatedFastInv extends FastInv {
      * @param handlers the list of click handlers associated to the items
      */
     public void addContent(Collection<ItemStack> content, Collection<Consumer<InventoryClickEvent>> handlers) {
-        Objects.requireNonNull(content, "content");
-        Objects.requireNonNull(handlers, "handlers");
-
-        if (content.size() != handlers.size()) {
-            throw new IllegalArgumentException("The content and handlers lists must have the same size");
-        }
-
-        this.contentItems.addAll(content);
-        this.contentHandlers.addAll(handlers);
+        writableContent().addAll(content, handlers);
     }
 
     /**
@@ -147,8 +191,7 @@ public class PaginatedFastInv extends FastInv {
      * @param handler the click handler associated to this item
      */
     public void setContent(int index, ItemStack item, Consumer<InventoryClickEvent> handler) {
-        this.contentItems.set(index, item);
-        this.contentHandlers.set(index, handler);
+        writableContent().set(index, item, handler);
     }
 
     /**
@@ -184,8 +227,159 @@ public class PaginatedFastInv extends FastInv {
      * Clear the paginated content and the associated click handlers.
      */
     public void clearContent() {
-        this.contentItems.clear();
-        this.contentHandlers.clear();
+        if (this.sharedContent) {
+            this.content = new PageContent();
+            this.sharedContent = false;
+        } else {
+            this.content.clear();
+        }
+    }
+
+    /**
+     * Use the given content as the paginated content, instead of the content added with {@link #addContent(ItemStack)}.
+     * The same content can be used by multiple inventories, for example one per player, and changes made
+     * directly to it are visible by all of them. The {@code addContent}, {@code setContent} and
+     * {@code clearContent} methods of this inventory don't modify a shared content, but a copy of it.
+     *
+     * @param content the content to use
+     */
+    public void setPageContent(PageContent content) {
+        this.content = Objects.requireNonNull(content, "content");
+        this.sharedContent = true;
+        this.contentSource = this.contentView;
+
+        cancelPrefetch();
+    }
+
+    /**
+     * Get the content of this inventory, which may be shared with other inventories.
+     *
+     * @return the paginated content
+     * @see #setPageContent(PageContent)
+     */
+    public PageContent getPageContent() {
+        return this.content;
+    }
+
+    /**
+     * Sort the paginated content with the given comparator, without modifying the content itself.
+     * The sorted order is computed once and cached until the content is modified, so switching between
+     * comparators is cheap when the same comparator instances are reused. The order only applies to this
+     * inventory, even if the content is shared, but the cache is shared with the content.
+     * Use {@link #openPage(int)} to display the sorted content.
+     *
+     * @param order the comparator to sort the content, or null to display the content in insertion order
+     */
+    public void setContentOrder(Comparator<ItemStack> order) {
+        this.contentOrder = order;
+
+        cancelPrefetch();
+    }
+
+    /**
+     * Only display the paginated content matching the given filter, without modifying the content itself.
+     * The filtered content is computed once and cached until the content is modified, so switching between
+     * filters is cheap when the same filter instances are reused. The filter only applies to this
+     * inventory, even if the content is shared, but the cache is shared with the content.
+     * Use {@link #openPage(int)} to display the filtered content.
+     *
+     * @param filter the filter of the content to display, or null to display all the content
+     */
+    public void setContentFilter(Predicate<ItemStack> filter) {
+        this.contentFilter = filter;
+
+        cancelPrefetch();
+    }
+
+    /**
+     * Use a page source for the paginated content, instead of the content added with {@link #addContent(ItemStack)}.
+     * Only the items of the displayed page are requested to the source.
+     *
+     * @param contentSource the page source, or null to use the content added with {@code addContent} again
+     * @see PageSource#of(IntSupplier, IntFunction, IntFunction)
+     */
+    public void setContentSource(PageSource contentSource) {
+        this.contentSource = contentSource != null ? contentSource : this.contentView;
+
+        cancelPrefetch();
+    }
+
+    /**
+     * Set the cache used to reuse the items of the content source and the previous and next page items
+     * when a page is opened again. The same cache can be shared by multiple inventories.
+     * The content added with {@link #addContent(ItemStack)} is already built, so it is never cached.
+     * Previous and next page items are cached by page, so their functions should only depend on the page.
+     *
+     * @param renderCache the render cache, or null to disable caching
+     */
+    public void setRenderCache(RenderCache renderCache) {
+        this.renderCache = renderCache;
+    }
+
+    /**
+     * Build the pages around the current page of the content source in advance, off the main thread.
+     * When the player changes page, the prefetched items are directly copied into the inventory.
+     * The pending prefetches are cancelled when the inventory is closed.
+     * <p>
+     * The content source set with {@link #setContentSource(PageSource)} must be thread-safe to use prefetching,
+     * and {@link #invalidateContent()} must be called when its items change. It can't render its items
+     * with an {@link ItemTemplate}, as templates must only be rendered on the main thread.
+     * The content added with {@link #addContent(ItemStack)} is already built, so it is never prefetched.
+     *
+     * @param prefetchDepth the number of pages to prefetch before and after the current page, or 0 to disable prefetching
+     */
+    public void setPrefetchDepth(int prefetchDepth) {
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("Invalid prefetch depth: " + prefetchDepth);
+        }
+
+        this.prefetchDepth = prefetchDepth;
+
+        if (prefetchDepth == 0) {
+            cancelPrefetch();
+        }
+    }
+
+    /**
+     * Discard the items of the content source built in advance by prefetching, and remove them
+     * from the render cache. This must be called when the items of the content source change,
+     * as the inventory can't detect these changes when the content size stays the same.
+     * Use {@link #openPage(int)} to display the new content of the current page.
+     *
+     * @see #setPrefetchDepth(int)
+     */
+    public void invalidateContent() {
+        if (this.renderCache != null && this.contentSource != this.contentView) {
+            this.renderCache.invalidate(this.contentSource);
+        }
+
+        cancelPrefetch();
+    }
+
+    /**
+     * Load the paginated content asynchronously, page by page, instead of using the content added
+     * with {@link #addContent(ItemStack)}. While a page is loading, its content slots show the loading item.
+     * The loaded items are applied on the main thread, and results of a page that is no longer
+     * displayed are ignored. Loaded items don't have click handlers, use {@link #addClickHandler(Consumer)}
+     * with {@link InventoryClickEvent#getSlot()} to handle clicks on them.
+     *
+     * @param contentSize a supplier of the total number of items of the paginated content
+     * @param pageLoader  the loader of the items of a page, or null to use the content added with {@code addContent} again
+     * @see #setLoadingItem(ItemStack)
+     */
+    public void setPageLoader(IntSupplier contentSize, PageLoader pageLoader) {
+        this.pageLoaderSize = pageLoader != null ? Objects.requireNonNull(contentSize, "contentSize") : null;
+        this.pageLoader = pageLoader;
+    }
+
+    /**
+     * Set the item displayed on the content slots while a page is loaded by the page loader.
+     *
+     * @param loadingItem the loading item, or null to keep the slots empty while loading
+     * @see #setPageLoader(IntSupplier, PageLoader)
+     */
+    public void setLoadingItem(ItemStack loadingItem) {
+        this.loadingItem = loadingItem;
     }
 
     /**
@@ -211,34 +405,196 @@ public class PaginatedFastInv extends FastInv {
      * @param page the page to open
      */
     public void openPage(int page) {
+        long metricsStart = FastInvMetrics.start();
         int lastPage = lastPage();
 
         this.page = Math.max(1, Math.min(page, lastPage));
 
-        int index = this.contentSlots.size() * (this.page - 1);
+        int pageStart = this.contentSlots.size() * (this.page - 1);
+        int loadId = ++this.pageLoadId;
+        CompletableFuture<List<ItemStack>> loading = null;
+        List<ItemStack> loaded = null;
 
-        for (int slot : this.contentSlots) {
-            if (index >= this.contentItems.size()) {
-                removeItem(slot);
-                continue;
+        if (this.pageLoader != null) {
+            loading = this.pageLoader.load(pageStart, Math.min(pageStart + this.contentSlots.size(), contentSize()));
+
+            // Don't display the loading item when the page is already available
+            if (loading.isDone() && !loading.isCompletedExceptionally()) {
+                loaded = loading.join();
+                loading = null;
+            }
+        }
+
+        List<ItemStack> loadedItems = loaded;
+        boolean loadingPage = loading != null;
+        PrefetchedPage prefetched = getPrefetchedPage(this.page, pageStart);
+
+        edit(editor -> {
+            if (loadedItems != null || loadingPage) {
+                fillLoadedContent(editor, loadedItems);
+            } else if (prefetched != null) {
+                prefetched.fill(editor, this.contentSlots);
+            } else {
+                fillSourceContent(editor, pageStart);
+            }
+
+            if (this.page > 1 && this.previousPageItem != null) {
+                editor.setItem(this.previousPageSlot, renderPageItem(this.previousPageItem, this.page - 1), e -> openPrevious());
+            } else if (this.previousPageSlot >= 0) {
+                editor.removeItem(this.previousPageSlot);
             }
 
-            setItem(slot, contentItems.get(index), contentHandlers.get(index++));
+            if (this.page < lastPage && this.nextPageItem != null) {
+                editor.setItem(this.nextPageSlot, renderPageItem(this.nextPageItem, this.page + 1), e -> openNext());
+            } else if (this.nextPageSlot >= 0) {
+                editor.removeItem(this.nextPageSlot);
+            }
+        });
+
+        if (loading != null) {
+            Plugin plugin = FastInvManager.getPlugin();
+            int loadedPage = this.page;
+
+            loading.whenComplete((items, ex) -> Bukkit.getScheduler().runTask(plugin, () -> {
+                if (ex != null) {
+                    plugin.getLogger().log(Level.WARNING, "Unable to load page " + loadedPage + " of " + this, ex);
+                    return;
+                }
+
+                // Ignore the result if another page was opened in the meantime
+                if (loadId == this.pageLoadId) {
+                    edit(editor -> fillLoadedContent(editor, items));
+                }
+            }));
         }
 
-        if (this.page > 1 && this.previousPageItem != null) {
-            setItem(this.previousPageSlot, this.previousPageItem.apply(this.page - 1), e -> openPrevious());
-        } else if (this.previousPageSlot >= 0) {
-            removeItem(this.previousPageSlot);
+        prefetchAdjacentPages(lastPage);
+
+        onPageChange(page);
+
+        FastInvMetrics.record(this, FastInvMetrics.Operation.PAGE, metricsStart);
+    }
+
+    private void fillSourceContent(Editor editor, int pageStart) {
+        Iterator<Integer> slots = this.contentSlots.iterator();
+        int pageEnd = Math.min(pageStart + this.contentSlots.size(), this.contentSource.size());
+
+        BiConsumer<ItemStack, Consumer<InventoryClickEvent>> consumer = (item, handler) -> {
+            if (slots.hasNext()) {
+                editor.setItem(slots.next(), item, handler);
+            }
+        };
+
+        if (this.renderCache != null && this.contentSource != this.contentView) {
+            this.renderCache.fetch(this.contentSource, pageStart, pageEnd, consumer);
+        } else {
+            this.contentSource.fetch(pageStart, pageEnd, consumer);
         }
 
-        if (this.page < lastPage && this.nextPageItem != null) {
-            setItem(this.nextPageSlot, this.nextPageItem.apply(this.page + 1), e -> openNext());
-        } else if (this.nextPageSlot >= 0) {
-            removeItem(this.nextPageSlot);
+        while (slots.hasNext()) {
+            editor.removeItem(slots.next());
         }
+    }
 
-        onPageChange(page);
+    private PrefetchedPage getPrefetchedPage(int page, int pageStart) {
+        CompletableFuture<PrefetchedPage> future = this.prefetchedPages.get(page);
+
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+
+        PrefetchedPage prefetched = future.join();
+
+        // The content may have changed since the page was prefetched
+        int pageEnd = Math.min(pageStart + this.contentSlots.size(), this.contentSource.size());
+
+        return prefetched.version == this.prefetchVersion && prefetched.fromIndex == pageStart
+                && prefetched.toIndex == pageEnd ? prefetched : null;
+    }
+
+    private void prefetchAdjacentPages(int lastPage) {
+        if (this.prefetchDepth == 0 || this.pageLoader != null || this.contentSource == this.contentView) {
+            return;
+        }
+
+        Iterator<Map.Entry<Integer, CompletableFuture<PrefetchedPage>>> iterator = this.prefetchedPages.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, CompletableFuture<PrefetchedPage>> entry = iterator.next();
+            int distance = Math.abs(entry.getKey() - this.page);
+
+            if (distance == 0 || distance > this.prefetchDepth) {
+                entry.getValue().cancel(false);
+                iterator.remove();
+            }
+        }
+
+        int from = Math.max(1, this.page - this.prefetchDepth);
+        int to = Math.min(lastPage, this.page + this.prefetchDepth);
+
+        for (int prefetchPage = from; prefetchPage <= to; prefetchPage++) {
+            if (prefetchPage != this.page && !this.prefetchedPages.containsKey(prefetchPage)) {
+                this.prefetchedPages.put(prefetchPage, prefetch(prefetchPage));
+            }
+        }
+    }
+
+    private CompletableFuture<PrefetchedPage> prefetch(int page) {
+        int fromIndex = this.contentSlots.size() * (page - 1);
+        int toIndex = Math.min(fromIndex + this.contentSlots.size(), this.contentSource.size());
+        int version = this.prefetchVersion;
+        PageSource source = this.contentSource;
+        RenderCache cache = this.renderCache;
+        CompletableFuture<PrefetchedPage> future = new CompletableFuture<>();
+
+        Bukkit.getScheduler().runTaskAsynchronously(FastInvManager.getPlugin(), () -> {
+            PrefetchedPage prefetched = new PrefetchedPage(version, fromIndex, toIndex);
+
+            try {
+                // Fetch the items one by one, to stop as soon as the prefetch is cancelled
+                for (int i = fromIndex; i < toIndex && !future.isDone(); i++) {
+                    if (cache != null) {
+                        cache.fetch(source, i, i + 1, prefetched::add);
+                    } else {
+                        source.fetch(i, i + 1, prefetched::add);
+                    }
+                }
+
+                future.complete(prefetched);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+
+        return future;
+    }
+
+    private void cancelPrefetch() {
+        this.prefetchVersion++;
+
+        for (CompletableFuture<PrefetchedPage> future : this.prefetchedPages.values()) {
+            future.cancel(false);
+        }
+
+        this.prefetchedPages.clear();
+    }
+
+    private ItemStack renderPageItem(IntFunction<ItemStack> itemFunction, int page) {
+        return this.renderCache != null ? this.renderCache.getItem(itemFunction, page) : itemFunction.apply(page);
+    }
+
+    private void fillLoadedContent(Editor editor, List<ItemStack> items) {
+        int index = 0;
+
+        for (int slot : this.contentSlots) {
+            if (items == null) {
+                editor.setItem(slot, this.loadingItem);
+            } else if (index < items.size()) {
+                editor.setItem(slot, items.get(index++));
+            } else {
+                editor.removeItem(slot);
+            }
+        }
     }
 
     /**
@@ -300,6 +656,16 @@ public class PaginatedFastInv extends FastInv {
         nextPageItem(slot, page -> item);
     }
 
+    @Override
+    boolean handleClose(InventoryCloseEvent e) {
+        // The closing player is still in the viewers
+        if (getInventory().getViewers().size() <= 1) {
+            cancelPrefetch();
+        }
+
+        return super.handleClose(e);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -333,12 +699,26 @@ public class PaginatedFastInv extends FastInv {
      * @return the index of the last page, starting at 1
      */
     public int lastPage() {
-        int last = this.contentItems.size() / this.contentSlots.size();
-        int remaining = this.contentItems.size() % this.contentSlots.size();
+        int size = contentSize();
+        int last = size / this.contentSlots.size();
+        int remaining = size % this.contentSlots.size();
 
         return remaining == 0 ? last : last + 1;
     }
 
+    private PageContent writableContent() {
+        if (this.sharedContent) {
+            this.content = this.content.copy();
+            this.sharedContent = false;
+        }
+
+        return this.content;
+    }
+
+    private int contentSize() {
+        return this.pageLoader != null ? this.pageLoaderSize.getAsInt() : this.contentSource.size();
+    }
+
     /**
      * Return if the current page is the first page.
      *
@@ -358,4 +738,82 @@ public class PaginatedFastInv extends FastInv {
     public boolean isLastPage() {
         return this.page == lastPage();
     }
+
+    /**
+     * The content of this inventory, with its order and filter.
+     */
+    private final class ContentView implements PageSource {
+
+        @Override
+        public int size() {
+            int[] view = content.view(contentOrder, contentFilter);
+
+            return view != null ? view.length : content.size();
+        }
+
+        @Override
+        public void fetch(int fromIndex, int toIndex, BiConsumer<ItemStack, Consumer<InventoryClickEvent>> consumer) {
+            int[] view = content.view(contentOrder, contentFilter);
+
+            if (view == null) {
+                content.fetch(fromIndex, toIndex, consumer);
+                return;
+            }
+
+            for (int i = fromIndex; i < toIndex; i++) {
+                content.fetch(view[i], view[i] + 1, consumer);
+            }
+        }
+    }
+
+    private static final class PrefetchedPage {
+
+        private final List<ItemStack> items = new ArrayList<>();
+        private final List<Consumer<InventoryClickEvent>> handlers = new ArrayList<>();
+        private final int version;
+        private final int fromIndex;
+        private final int toIndex;
+
+        private PrefetchedPage(int version, int fromIndex, int toIndex) {
+            this.version = version;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        private void add(ItemStack item, Consumer<InventoryClickEvent> handler) {
+            this.items.add(item);
+            this.handlers.add(handler);
+        }
+
+        private void fill(Editor editor, List<Integer> slots) {
+            int index = 0;
+
+            for (int slot : slots) {
+                if (index < this.items.size()) {
+                    editor.setItem(slot, this.items.get(index), this.handlers.get(index++));
+                } else {
+                    editor.removeItem(slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Asynchronous loader of the items of a page.
+     *
+     * @see #setPageLoader(IntSupplier, PageLoader)
+     */
+    @FunctionalInterface
+    public interface PageLoader {
+
+        /**
+         * Load the items of the paginated content between the given indexes.
+         * The returned future can be completed from any thread.
+         *
+         * @param fromIndex the index of the first item to load (inclusive)
+         * @param toIndex   the index of the last item to load (exclusive)
+         * @return a future completed with the loaded items
+         */
+        CompletableFuture<List<ItemStack>> load(int fromIndex, int toIndex);
+    }
 }
@@ -0,0 +1,135 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * A queue of pending inventory refreshes, spread across ticks to stay under a time budget per tick.
+ * Refreshes of the same inventory are coalesced, and a refresh is never delayed longer than the
+ * maximum delay, even if the budget is exceeded.
+ * The queue is not synchronized: refreshes must be queued from the main thread, where the queue is drained.
+ *
+ * @see FastInvManager#queueRefresh(FastInv, Runnable)
+ */
+final class RefreshQueue implements Runnable {
+
+    private final Map<FastInv, Pending> pending = new IdentityHashMap<>();
+    private final Queue<Pending> queue = new ArrayDeque<>();
+
+    private long budgetNanos = TimeUnit.MILLISECONDS.toNanos(2);
+    private int maxDelay = 20;
+
+    private BukkitTask task;
+    private long tick;
+
+    private long coalesced;
+    private long deferred;
+    private long overdue;
+
+    void setBudget(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    void setMaxDelay(int maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    void add(FastInv inv, Runnable refresh) {
+        Pending previous = this.pending.get(inv);
+
+        // Keep the position and time of the first request, so coalescing doesn't delay the refresh
+        if (previous != null) {
+            previous.refresh = refresh;
+            this.coalesced++;
+            return;
+        }
+
+        Pending entry = new Pending(inv, refresh, this.tick);
+        this.pending.put(inv, entry);
+        this.queue.add(entry);
+
+        if (this.task == null) {
+            this.task = Bukkit.getScheduler().runTaskTimer(FastInvManager.getPlugin(), this, 1, 1);
+        }
+    }
+
+    void reset() {
+        this.pending.clear();
+        this.queue.clear();
+        this.task = null;
+    }
+
+    int size() {
+        return this.queue.size();
+    }
+
+    long getCoalesced() {
+        return this.coalesced;
+    }
+
+    long getDeferred() {
+        return this.deferred;
+    }
+
+    long getOverdue() {
+        return this.overdue;
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        long tick = ++this.tick;
+        int processed = 0;
+
+        Pending entry;
+
+        while ((entry = this.queue.peek()) != null) {
+            // The queue is ordered by request time, so the overdue refreshes are always first
+            // At least one refresh is done each tick, so the queue always progresses
+            if (processed > 0 && System.nanoTime() - start >= this.budgetNanos) {
+                if (tick - entry.tick < this.maxDelay) {
+                    break;
+                }
+
+                this.overdue++;
+            }
+
+            this.queue.poll();
+            this.pending.remove(entry.inv);
+            processed++;
+
+            try {
+                entry.refresh.run();
+            } catch (RuntimeException e) {
+                FastInvManager.getPlugin().getLogger().log(Level.SEVERE, "Error while refreshing inventory " + entry.inv, e);
+            }
+        }
+
+        this.deferred += this.queue.size();
+
+        if (this.queue.isEmpty()) {
+            this.task.cancel();
+            this.task = null;
+        }
+    }
+
+    private static final class Pending {
+
+        private final FastInv inv;
+        private final long tick;
+        private Runnable refresh;
+
+        private Pending(FastInv inv, Runnable refresh, long tick) {
+            this.inv = inv;
+            this.refresh = refresh;
+            this.tick = tick;
+        }
+    }
+}
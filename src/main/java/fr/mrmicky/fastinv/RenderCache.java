@@ -0,0 +1,255 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * A bounded LRU cache of the items rendered by {@link PaginatedFastInv}: the content items of a
+ * {@link PageSource}, and the previous and next page items. A cache can be used by a single inventory
+ * or shared between many inventories using the same page source and page items functions.
+ * <p>
+ * Cached items are reused as is, so they should not be modified after being rendered.
+ * If the content of a page source changes, the cache should be invalidated with {@link #invalidate(Object)}.
+ *
+ * @see PaginatedFastInv#setRenderCache(RenderCache)
+ */
+public final class RenderCache {
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private final ToIntFunction<ItemStack> weigher;
+    private final long maxWeight;
+
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private RenderCache(long maxWeight, ToIntFunction<ItemStack> weigher) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive");
+        }
+
+        this.maxWeight = maxWeight;
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+    }
+
+    /**
+     * Create a cache keeping at most the given number of items, empty slots included.
+     *
+     * @param maxSize the maximum number of cached items
+     * @return the new cache
+     */
+    public static RenderCache ofSize(int maxSize) {
+        return new RenderCache(maxSize, item -> 1);
+    }
+
+    /**
+     * Create a cache keeping items until their total weight reaches the given maximum weight.
+     * Empty slots are cached with a weight of 1.
+     *
+     * @param maxWeight the maximum total weight of the cached items
+     * @param weigher   a function to get the weight of an item
+     * @return the new cache
+     */
+    public static RenderCache ofWeight(long maxWeight, ToIntFunction<ItemStack> weigher) {
+        return new RenderCache(maxWeight, weigher);
+    }
+
+    /**
+     * Remove all the items rendered by the given page source or page item function.
+     *
+     * @param owner the page source or page item function
+     */
+    public synchronized void invalidate(Object owner) {
+        Iterator<Map.Entry<Key, Entry>> iterator = this.entries.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+
+            if (entry.getKey().owner == owner) {
+                this.weight -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all the cached items.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.weight = 0;
+    }
+
+    /**
+     * Get the number of cached items.
+     *
+     * @return the number of cached items
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Get the number of times an item was found in the cache.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHitCount() {
+        return this.hits;
+    }
+
+    /**
+     * Get the number of times an item was not in the cache and had to be rendered.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMissCount() {
+        return this.misses;
+    }
+
+    /**
+     * Get the number of items removed from the cache to respect its maximum size.
+     *
+     * @return the number of evicted items
+     */
+    public synchronized long getEvictionCount() {
+        return this.evictions;
+    }
+
+    ItemStack getItem(IntFunction<ItemStack> itemFunction, int page) {
+        Entry entry = get(itemFunction, page);
+
+        if (entry != null) {
+            return entry.item;
+        }
+
+        ItemStack item = itemFunction.apply(page);
+        put(itemFunction, page, item, null, 1);
+        return item;
+    }
+
+    /**
+     * Same as {@link PageSource#fetch(int, int, BiConsumer)}, but with the cached items.
+     * Consecutive missing items are fetched together from the source.
+     */
+    void fetch(PageSource source, int fromIndex, int toIndex, BiConsumer<ItemStack, Consumer<InventoryClickEvent>> consumer) {
+        int index = fromIndex;
+
+        while (index < toIndex) {
+            Entry entry = get(source, index);
+
+            if (entry != null) {
+                consumer.accept(entry.item, entry.handler);
+                index++;
+                continue;
+            }
+
+            int missFrom = index;
+
+            do {
+                index++;
+            } while (index < toIndex && !contains(source, index));
+
+            int[] next = {missFrom, index - missFrom};
+
+            source.fetch(missFrom, index, (item, handler) -> {
+                // Count all the misses of the range with the first fetched item
+                put(source, next[0]++, item, handler, next[1]);
+                next[1] = 0;
+                consumer.accept(item, handler);
+            });
+        }
+    }
+
+    private synchronized Entry get(Object owner, int index) {
+        Entry entry = this.entries.get(new Key(owner, index));
+
+        if (entry != null) {
+            this.hits++;
+        }
+
+        return entry;
+    }
+
+    private synchronized boolean contains(Object owner, int index) {
+        return this.entries.containsKey(new Key(owner, index));
+    }
+
+    private synchronized void put(Object owner, int index, ItemStack item, Consumer<InventoryClickEvent> handler, int misses) {
+        this.misses += misses;
+
+        // Empty slots count too, or a sparse source would fill the cache without bound
+        int itemWeight = item != null ? this.weigher.applyAsInt(item) : 1;
+        Entry previous = this.entries.put(new Key(owner, index), new Entry(item, handler, itemWeight));
+
+        if (previous != null) {
+            this.weight -= previous.weight;
+        }
+
+        this.weight += itemWeight;
+
+        Iterator<Entry> iterator = this.entries.values().iterator();
+
+        // Evict the least recently used items, but always keep the last one
+        while (this.weight > this.maxWeight && this.entries.size() > 1) {
+            Entry eldest = iterator.next();
+
+            this.weight -= eldest.weight;
+            this.evictions++;
+            iterator.remove();
+        }
+    }
+
+    private static final class Key {
+
+        private final Object owner;
+        private final int index;
+
+        private Key(Object owner, int index) {
+            this.owner = owner;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return this.owner == key.owner && this.index == key.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.owner) + this.index;
+        }
+    }
+
+    private static final class Entry {
+
+        private final ItemStack item;
+        private final Consumer<InventoryClickEvent> handler;
+        private final int weight;
+
+        private Entry(ItemStack item, Consumer<InventoryClickEvent> handler, int weight) {
+            this.item = item;
+            this.handler = handler;
+            this.weight = weight;
+        }
+    }
+}
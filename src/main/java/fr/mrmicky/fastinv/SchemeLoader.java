@@ -0,0 +1,311 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Loader of {@link InventoryScheme} layouts from YAML or JSON files, so layouts can be edited
+ * without recompiling the plugin. Each file is parsed once and cached as a {@link CompiledScheme},
+ * and can be reloaded automatically when it changes with {@link #watch()}.
+ * <p>
+ * The layout {@code shop} is loaded from the file {@code shop.yml}, {@code shop.yaml} or {@code shop.json}
+ * in the layouts directory. Example of a YAML layout:
+ * <pre>
+ * masks:
+ *   - "bbbbbbbbb"
+ *   - "bpppppppb"
+ *   - "bbbbcbbbb"
+ * items:
+ *   b: border
+ *   c: close
+ * pagination: p
+ * </pre>
+ * Each item key, like {@code border} in this example, must be bound in the code with {@link #bindItem(String, ItemStack, Consumer)}.
+ */
+public final class SchemeLoader implements AutoCloseable {
+
+    private static final String[] EXTENSIONS = {".yml", ".yaml", ".json"};
+
+    private final Map<String, CompiledScheme> layouts = new ConcurrentHashMap<>();
+    private final Map<String, ItemStack> items = new ConcurrentHashMap<>();
+    private final Map<String, Consumer<InventoryClickEvent>> handlers = new ConcurrentHashMap<>();
+    // Incremented each time the cached layouts are cleared, to not cache the layouts loaded before
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final Plugin plugin;
+    private final Path directory;
+
+    private volatile WatchService watchService;
+
+    /**
+     * Create a new loader, loading the layouts from the given directory.
+     *
+     * @param plugin    the plugin using this loader, used to log errors
+     * @param directory the directory containing the layout files
+     */
+    public SchemeLoader(Plugin plugin, Path directory) {
+        this.plugin = Objects.requireNonNull(plugin, "plugin");
+        this.directory = Objects.requireNonNull(directory, "directory");
+    }
+
+    /**
+     * Bind an item key used in the layout files to an item, with no click handler.
+     *
+     * @param key  the key of the item in the layout files
+     * @param item the item to use for this key
+     * @return this loader instance
+     */
+    public SchemeLoader bindItem(String key, ItemStack item) {
+        return bindItem(key, item, null);
+    }
+
+    /**
+     * Bind an item key used in the layout files to an item with a click handler.
+     * The cached layouts are compiled again the next time they are used.
+     *
+     * @param key     the key of the item in the layout files
+     * @param item    the item to use for this key
+     * @param handler the click handler of the item
+     * @return this loader instance
+     */
+    public SchemeLoader bindItem(String key, ItemStack item, Consumer<InventoryClickEvent> handler) {
+        this.items.put(Objects.requireNonNull(key, "key"), Objects.requireNonNull(item, "item"));
+
+        if (handler != null) {
+            this.handlers.put(key, handler);
+        } else {
+            this.handlers.remove(key);
+        }
+
+        clearLayouts();
+        return this;
+    }
+
+    /**
+     * Get a layout, loaded from its file the first time and then cached.
+     *
+     * @param name the name of the layout, which is the name of its file without extension
+     * @return the compiled layout
+     * @throws IllegalArgumentException if the file doesn't exist or is invalid
+     */
+    public CompiledScheme get(String name) {
+        while (true) {
+            CompiledScheme layout = this.layouts.get(name);
+
+            if (layout != null) {
+                return layout;
+            }
+
+            int generation = this.generation.get();
+
+            // Parse outside computeIfAbsent, to not block the map during file access
+            layout = load(name);
+            CompiledScheme previous = this.layouts.putIfAbsent(name, layout);
+
+            if (previous != null) {
+                return previous;
+            }
+
+            if (isCurrent(name, layout, generation)) {
+                return layout;
+            }
+        }
+    }
+
+    /**
+     * Reload a layout from its file. If the file is invalid or was deleted, the previous layout is kept.
+     *
+     * @param name the name of the layout to reload
+     * @return true if the layout was reloaded successfully
+     */
+    public boolean reload(String name) {
+        try {
+            int generation = this.generation.get();
+            CompiledScheme layout = load(name);
+
+            this.layouts.put(name, layout);
+            isCurrent(name, layout, generation);
+            return true;
+        } catch (IllegalArgumentException e) {
+            this.plugin.getLogger().log(Level.WARNING, "Unable to reload layout " + name, e);
+            return false;
+        }
+    }
+
+    /**
+     * Clear all the cached layouts, they will be loaded from their files the next time they are used.
+     */
+    public void reloadAll() {
+        clearLayouts();
+    }
+
+    /**
+     * Watch the layouts directory, and reload the cached layouts when their file is modified.
+     * Only the modified files are parsed again. Like with {@link #reload(String)}, the previous
+     * layout is kept if its file becomes invalid or is deleted.
+     *
+     * @throws IOException if the directory can't be watched
+     * @throws IllegalStateException if the directory is already watched
+     */
+    public synchronized void watch() throws IOException {
+        if (this.watchService != null) {
+            throw new IllegalStateException("Already watching " + this.directory);
+        }
+
+        WatchService service = FileSystems.getDefault().newWatchService();
+        this.directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.watchService = service;
+
+        Thread thread = new Thread(() -> watchLoop(service), "FastInv layouts watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop watching the layouts directory.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.watchService != null) {
+            this.watchService.close();
+            this.watchService = null;
+        }
+    }
+
+    private void watchLoop(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        reloadAll();
+                        continue;
+                    }
+
+                    String name = layoutName(event.context().toString());
+
+                    // Layouts that were never used are loaded when they are first requested
+                    if (name == null || !this.layouts.containsKey(name)) {
+                        continue;
+                    }
+
+                    reload(name);
+                }
+
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // The loader was closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void clearLayouts() {
+        this.generation.incrementAndGet();
+        this.layouts.clear();
+    }
+
+    private boolean isCurrent(String name, CompiledScheme layout, int generation) {
+        if (this.generation.get() == generation) {
+            return true;
+        }
+
+        // The layouts were cleared while loading, this layout may use the previous bindings
+        this.layouts.remove(name, layout);
+        return false;
+    }
+
+    private CompiledScheme load(String name) {
+        Path file = findFile(name);
+
+        if (file == null) {
+            throw new IllegalArgumentException("No layout file found for " + name + " in " + this.directory);
+        }
+
+        YamlConfiguration config = new YamlConfiguration();
+
+        try {
+            config.load(file.toFile());
+        } catch (IOException | InvalidConfigurationException e) {
+            throw new IllegalArgumentException("Invalid layout file " + file, e);
+        }
+
+        InventoryScheme scheme = new InventoryScheme();
+        List<String> masks = config.getStringList("masks");
+
+        if (masks.isEmpty()) {
+            throw new IllegalArgumentException("No masks in layout file " + file);
+        }
+
+        scheme.masks(masks.toArray(new String[0]));
+
+        ConfigurationSection itemsSection = config.getConfigurationSection("items");
+
+        if (itemsSection != null) {
+            for (String character : itemsSection.getKeys(false)) {
+                String key = itemsSection.getString(character);
+                ItemStack item = this.items.get(key);
+
+                if (character.length() != 1 || item == null) {
+                    throw new IllegalArgumentException("Invalid item binding '" + character + "': " + key + " in " + file);
+                }
+
+                scheme.bindItem(character.charAt(0), item, this.handlers.get(key));
+            }
+        }
+
+        String pagination = config.getString("pagination");
+
+        if (pagination != null && !pagination.isEmpty()) {
+            scheme.bindPagination(pagination.charAt(0));
+        }
+
+        return scheme.compile();
+    }
+
+    private Path findFile(String name) {
+        for (String extension : EXTENSIONS) {
+            Path file = this.directory.resolve(name + extension);
+
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private static String layoutName(String fileName) {
+        for (String extension : EXTENSIONS) {
+            if (fileName.endsWith(extension)) {
+                return fileName.substring(0, fileName.length() - extension.length());
+            }
+        }
+        return null;
+    }
+}
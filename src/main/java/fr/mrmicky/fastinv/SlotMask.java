@@ -0,0 +1,304 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable set of inventory slots, that can be shared between inventories.
+ * Slots are arranged in rows of 9, like in a chest inventory.
+ * <p>
+ * Borders and corners masks are computed once per inventory size and type, and then cached.
+ */
+public final class SlotMask {
+
+    private static final int ROW_LENGTH = 9;
+
+    private static final SlotMask EMPTY = new SlotMask(new BitSet());
+
+    private static final Map<Integer, SlotMask> BORDERS = new ConcurrentHashMap<>();
+    private static final Map<Integer, SlotMask> CORNERS = new ConcurrentHashMap<>();
+
+    private final BitSet bits;
+    private final int[] slots;
+
+    private SlotMask(BitSet bits) {
+        this.bits = bits;
+        this.slots = bits.stream().toArray();
+    }
+
+    /**
+     * Get an empty mask.
+     *
+     * @return the empty mask
+     */
+    public static SlotMask empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Create a mask containing the given slots.
+     *
+     * @param slots the slots of the mask
+     * @return the new mask
+     */
+    public static SlotMask of(int... slots) {
+        BitSet bits = new BitSet();
+
+        for (int slot : Objects.requireNonNull(slots, "slots")) {
+            bits.set(checkSlot(slot));
+        }
+
+        return new SlotMask(bits);
+    }
+
+    /**
+     * Create a mask containing all the slots from {@code slotFrom} (inclusive) to {@code slotTo} (exclusive).
+     *
+     * @param slotFrom starting slot (inclusive)
+     * @param slotTo   ending slot (exclusive)
+     * @return the new mask
+     */
+    public static SlotMask range(int slotFrom, int slotTo) {
+        BitSet bits = new BitSet();
+        bits.set(checkSlot(slotFrom), Math.max(slotFrom, slotTo));
+        return new SlotMask(bits);
+    }
+
+    /**
+     * Create a mask containing the rows from {@code rowFrom} to {@code rowTo}, both inclusive.
+     * The first row is 0.
+     *
+     * @param rowFrom the first row (inclusive)
+     * @param rowTo   the last row (inclusive)
+     * @return the new mask
+     */
+    public static SlotMask rows(int rowFrom, int rowTo) {
+        return range(rowFrom * ROW_LENGTH, (rowTo + 1) * ROW_LENGTH);
+    }
+
+    /**
+     * Create a mask containing a single row. The first row is 0.
+     *
+     * @param row the row
+     * @return the new mask
+     */
+    public static SlotMask row(int row) {
+        return rows(row, row);
+    }
+
+    /**
+     * Create a mask containing a column, for the given number of rows. The first column is 0.
+     *
+     * @param column the column, between 0 and 8
+     * @param rows   the number of rows of the inventory
+     * @return the new mask
+     */
+    public static SlotMask column(int column, int rows) {
+        return rectangle(0, column, rows - 1, column);
+    }
+
+    /**
+     * Create a mask containing a rectangle of slots, all bounds are inclusive.
+     *
+     * @param rowFrom    the first row of the rectangle
+     * @param columnFrom the first column of the rectangle
+     * @param rowTo      the last row of the rectangle
+     * @param columnTo   the last column of the rectangle
+     * @return the new mask
+     */
+    public static SlotMask rectangle(int rowFrom, int columnFrom, int rowTo, int columnTo) {
+        if (columnFrom < 0 || columnTo >= ROW_LENGTH || columnFrom > columnTo) {
+            throw new IllegalArgumentException("Invalid columns: " + columnFrom + " to " + columnTo);
+        }
+
+        BitSet bits = new BitSet();
+
+        for (int row = rowFrom; row <= rowTo; row++) {
+            int start = checkSlot(row * ROW_LENGTH);
+            bits.set(start + columnFrom, start + columnTo + 1);
+        }
+
+        return new SlotMask(bits);
+    }
+
+    /**
+     * Get the borders of an inventory. If the inventory size is under 27, all slots are returned.
+     *
+     * @param inventory the inventory
+     * @return the cached borders mask
+     */
+    public static SlotMask borders(Inventory inventory) {
+        return borders(inventory.getType(), inventory.getSize());
+    }
+
+    /**
+     * Get the borders of an inventory. If the inventory size is under 27, all slots are returned.
+     *
+     * @param type the type of the inventory
+     * @param size the size of the inventory
+     * @return the cached borders mask
+     */
+    public static SlotMask borders(InventoryType type, int size) {
+        return BORDERS.computeIfAbsent(key(type, size), k -> {
+            BitSet bits = new BitSet(size);
+
+            for (int i = 0; i < size; i++) {
+                if (size < 27 || i < 9 || i % 9 == 0 || (i - 8) % 9 == 0 || i > size - 9) {
+                    bits.set(i);
+                }
+            }
+
+            return new SlotMask(bits);
+        });
+    }
+
+    /**
+     * Get the corners of an inventory.
+     *
+     * @param inventory the inventory
+     * @return the cached corners mask
+     */
+    public static SlotMask corners(Inventory inventory) {
+        return corners(inventory.getType(), inventory.getSize());
+    }
+
+    /**
+     * Get the corners of an inventory.
+     *
+     * @param type the type of the inventory
+     * @param size the size of the inventory
+     * @return the cached corners mask
+     */
+    public static SlotMask corners(InventoryType type, int size) {
+        return CORNERS.computeIfAbsent(key(type, size), k -> {
+            BitSet bits = new BitSet(size);
+
+            for (int i = 0; i < size; i++) {
+                if (i < 2 || (i > 6 && i < 10) || i == 17 || i == size - 18
+                        || (i > size - 11 && i < size - 7) || i > size - 3) {
+                    bits.set(i);
+                }
+            }
+
+            return new SlotMask(bits);
+        });
+    }
+
+    /**
+     * Create a new mask containing the slots of this mask and of the other mask.
+     *
+     * @param other the other mask
+     * @return the union of the two masks
+     */
+    public SlotMask union(SlotMask other) {
+        BitSet bits = (BitSet) this.bits.clone();
+        bits.or(other.bits);
+        return new SlotMask(bits);
+    }
+
+    /**
+     * Create a new mask containing only the slots present in both this mask and the other mask.
+     *
+     * @param other the other mask
+     * @return the intersection of the two masks
+     */
+    public SlotMask intersect(SlotMask other) {
+        BitSet bits = (BitSet) this.bits.clone();
+        bits.and(other.bits);
+        return new SlotMask(bits);
+    }
+
+    /**
+     * Create a new mask containing the slots of this mask that are not in the other mask.
+     *
+     * @param other the other mask
+     * @return the difference of the two masks
+     */
+    public SlotMask subtract(SlotMask other) {
+        BitSet bits = (BitSet) this.bits.clone();
+        bits.andNot(other.bits);
+        return new SlotMask(bits);
+    }
+
+    /**
+     * Get if this mask contains the given slot.
+     *
+     * @param slot the slot to check
+     * @return true if the slot is in this mask
+     */
+    public boolean contains(int slot) {
+        return slot >= 0 && this.bits.get(slot);
+    }
+
+    /**
+     * Get the number of slots in this mask.
+     *
+     * @return the number of slots
+     */
+    public int size() {
+        return this.slots.length;
+    }
+
+    /**
+     * Get if this mask doesn't contain any slot.
+     *
+     * @return true if this mask is empty
+     */
+    public boolean isEmpty() {
+        return this.slots.length == 0;
+    }
+
+    /**
+     * Get the slots of this mask in ascending order.
+     *
+     * @return a copy of the slots of this mask
+     */
+    public int[] toArray() {
+        return this.slots.clone();
+    }
+
+    int[] slots() {
+        return this.slots;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof SlotMask)) {
+            return false;
+        }
+
+        return this.bits.equals(((SlotMask) o).bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.bits.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SlotMask" + Arrays.toString(this.slots);
+    }
+
+    private static int key(InventoryType type, int size) {
+        return (type.ordinal() << 16) | size;
+    }
+
+    private static int checkSlot(int slot) {
+        if (slot < 0) {
+            throw new IllegalArgumentException("Invalid slot: " + slot);
+        }
+
+        return slot;
+    }
+}
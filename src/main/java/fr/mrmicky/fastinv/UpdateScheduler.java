@@ -0,0 +1,141 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * A single repeating task running the updaters of all the open FastInv inventories.
+ * Each inventory is updated with its own period, in ticks. The task only runs while
+ * at least one inventory is scheduled.
+ * The scheduler is not synchronized, so every call, including the ones made by
+ * {@link FastInv#setUpdater(int, Runnable)} and {@link FastInv#removeUpdater()}, must happen on the main thread.
+ *
+ * @see FastInv#setUpdater(int, Runnable)
+ */
+final class UpdateScheduler implements Runnable {
+
+    private final Map<FastInv, Entry> entries = new IdentityHashMap<>();
+    private final List<Entry> queue = new ArrayList<>();
+
+    private BukkitTask task;
+    private long tick;
+
+    private int lastTickUpdates;
+    private long lastTickNanos;
+    private long totalUpdates;
+
+    /**
+     * Schedule the updates of an inventory, or change its update period if it's already scheduled.
+     *
+     * @param inv    the inventory to update
+     * @param period the number of ticks between two updates
+     */
+    void schedule(FastInv inv, int period) {
+        Entry entry = this.entries.get(inv);
+
+        if (entry != null) {
+            entry.period = period;
+            return;
+        }
+
+        entry = new Entry(inv, period, this.tick + period);
+        this.entries.put(inv, entry);
+        this.queue.add(entry);
+
+        if (this.task == null) {
+            Plugin plugin = FastInvManager.getPlugin();
+            this.task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1, 1);
+        }
+    }
+
+    void cancel(FastInv inv) {
+        Entry entry = this.entries.remove(inv);
+
+        // Removed from the queue on the next tick, to not shift the queue for each closed inventory
+        if (entry != null) {
+            entry.cancelled = true;
+        }
+    }
+
+    void reset() {
+        this.entries.clear();
+        this.queue.clear();
+        this.task = null;
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+
+    int getLastTickUpdates() {
+        return this.lastTickUpdates;
+    }
+
+    long getLastTickNanos() {
+        return this.lastTickNanos;
+    }
+
+    long getTotalUpdates() {
+        return this.totalUpdates;
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        long tick = ++this.tick;
+        int updates = 0;
+        int size = 0;
+
+        // An updater opening another inventory appends it here, so the size is read on each iteration
+        for (int i = 0; i < this.queue.size(); i++) {
+            Entry entry = this.queue.get(i);
+
+            if (!entry.cancelled && entry.nextTick <= tick) {
+                entry.nextTick = tick + entry.period;
+                updates++;
+
+                try {
+                    entry.inv.update();
+                } catch (RuntimeException e) {
+                    FastInvManager.getPlugin().getLogger().log(Level.SEVERE, "Error while updating inventory " + entry.inv, e);
+                }
+            }
+
+            if (!entry.cancelled) {
+                this.queue.set(size++, entry);
+            }
+        }
+
+        this.queue.subList(size, this.queue.size()).clear();
+
+        this.lastTickUpdates = updates;
+        this.lastTickNanos = System.nanoTime() - start;
+        this.totalUpdates += updates;
+
+        if (this.queue.isEmpty()) {
+            this.task.cancel();
+            this.task = null;
+        }
+    }
+
+    private static final class Entry {
+
+        private final FastInv inv;
+        private int period;
+        private long nextTick;
+        private boolean cancelled;
+
+        private Entry(FastInv inv, int period, long nextTick) {
+            this.inv = inv;
+            this.period = period;
+            this.nextTick = nextTick;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package fr.mrmicky.fastinv;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClickThrottlerTest {
+
+    // One click every 100 ms, and no burst: a tracked player can't click twice at the same time
+    private static final ClickRateLimit LIMIT = ClickRateLimit.of(10, 1, TimeUnit.SECONDS, 1);
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void burstIsLimited() {
+        ClickThrottler throttler = new ClickThrottler();
+        ClickRateLimit limit = ClickRateLimit.of(10, 1, TimeUnit.SECONDS, 3);
+
+        assertTrue(throttler.tryAcquire(1, limit, 0));
+        assertTrue(throttler.tryAcquire(1, limit, 0));
+        assertTrue(throttler.tryAcquire(1, limit, 0));
+        assertFalse(throttler.tryAcquire(1, limit, 0));
+
+        // A single click is available again after one interval
+        assertTrue(throttler.tryAcquire(1, limit, INTERVAL));
+        assertFalse(throttler.tryAcquire(1, limit, INTERVAL));
+    }
+
+    @Test
+    void playersAreLimitedSeparately() {
+        ClickThrottler throttler = new ClickThrottler();
+
+        assertTrue(throttler.tryAcquire(1, LIMIT, 0));
+        assertTrue(throttler.tryAcquire(2, LIMIT, 0));
+        assertFalse(throttler.tryAcquire(1, LIMIT, 0));
+        assertEquals(2, throttler.size());
+    }
+
+    @Test
+    void releaseOnlyRemovesFullBuckets() {
+        ClickThrottler throttler = new ClickThrottler();
+
+        throttler.tryAcquire(1, LIMIT, 0);
+
+        throttler.release(1, INTERVAL - 1);
+        assertEquals(1, throttler.size());
+
+        throttler.release(1, INTERVAL);
+        assertEquals(0, throttler.size());
+    }
+
+    @Test
+    void removedPlayersAreNotLimited() {
+        ClickThrottler throttler = new ClickThrottler();
+
+        throttler.tryAcquire(1, LIMIT, 0);
+        throttler.remove(1);
+
+        assertEquals(0, throttler.size());
+        assertTrue(throttler.tryAcquire(1, LIMIT, 0));
+    }
+
+    @Test
+    void removalKeepsTheOtherPlayers() {
+        ClickThrottler throttler = new ClickThrottler();
+        List<Integer> players = new ArrayList<>();
+
+        // Enough players to resize the table several times and get long probe sequences
+        for (int id = 0; id < 2000; id++) {
+            players.add(id * 7 - 500);
+            assertTrue(throttler.tryAcquire(id * 7 - 500, LIMIT, 0));
+        }
+
+        Collections.shuffle(players, new Random(42));
+        BitSet removed = new BitSet();
+
+        for (int i = 0; i < players.size(); i += 2) {
+            throttler.remove(players.get(i));
+            removed.set(i);
+        }
+
+        assertEquals(1000, throttler.size());
+
+        // The remaining players are still found and limited
+        for (int i = removed.nextClearBit(0); i < players.size(); i = removed.nextClearBit(i + 1)) {
+            assertFalse(throttler.tryAcquire(players.get(i), LIMIT, 0), "Player " + players.get(i));
+        }
+
+        // And the removed ones start over
+        for (int i = removed.nextSetBit(0); i >= 0; i = removed.nextSetBit(i + 1)) {
+            assertTrue(throttler.tryAcquire(players.get(i), LIMIT, 0), "Player " + players.get(i));
+        }
+
+        assertEquals(2000, throttler.size());
+    }
+
+    @Test
+    void removingACollidingPlayerKeepsTheOthers() {
+        // Players with the same home slot in the initial table, at the end of the table to wrap around
+        int[] players = collidingPlayers(15, 7);
+
+        for (int removedIndex = 0; removedIndex < players.length; removedIndex++) {
+            ClickThrottler throttler = new ClickThrottler();
+
+            for (int player : players) {
+                throttler.tryAcquire(player, LIMIT, 0);
+            }
+
+            throttler.remove(players[removedIndex]);
+
+            // Check the others first, as the removed player would fill the free slot again
+            for (int i = 0; i < players.length; i++) {
+                if (i != removedIndex) {
+                    assertFalse(throttler.tryAcquire(players[i], LIMIT, 0), "Player " + i + " after removing " + removedIndex);
+                }
+            }
+
+            assertTrue(throttler.tryAcquire(players[removedIndex], LIMIT, 0));
+        }
+    }
+
+    @Test
+    void removingAnUnknownPlayerDoesNothing() {
+        ClickThrottler throttler = new ClickThrottler();
+
+        throttler.tryAcquire(1, LIMIT, 0);
+        throttler.remove(2);
+        throttler.release(3, INTERVAL);
+
+        assertEquals(1, throttler.size());
+        assertFalse(throttler.tryAcquire(1, LIMIT, 0));
+    }
+
+    private static int[] collidingPlayers(int homeSlot, int count) {
+        int[] players = new int[count];
+        int found = 0;
+
+        // Same hash as ClickThrottler, with its initial capacity of 16
+        for (int id = 0; found < count; id++) {
+            int h = id * 0x9E3779B9;
+
+            if (((h ^ (h >>> 16)) & 15) == homeSlot) {
+                players[found++] = id;
+            }
+        }
+
+        return players;
+    }
+}
@@ -0,0 +1,86 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class InventorySchemeTest {
+
+    private final ItemStack border = new ItemStack(Material.GRAY_STAINED_GLASS_PANE);
+    private final ItemStack close = new ItemStack(Material.BARRIER);
+
+    @Test
+    void masksAreTruncatedToARow() {
+        CompiledScheme layout = new InventoryScheme()
+                .mask("0000000001111")
+                .mask("1")
+                .bindItem('1', this.border)
+                .compile();
+
+        // The extra characters of the first mask don't overflow on the second row
+        for (int slot = 0; slot < 9; slot++) {
+            assertNull(layout.getItem(slot));
+        }
+
+        assertSame(this.border, layout.getItem(9));
+        assertNull(layout.getItem(10));
+        assertNull(layout.getItem(18));
+    }
+
+    @Test
+    void itemsAndPaginationSlots() {
+        CompiledScheme layout = new InventoryScheme()
+                .masks("111111111", "1ppppppp1", "1111c1111")
+                .bindItem('1', this.border)
+                .bindItem('c', this.close)
+                .bindPagination('p')
+                .compile();
+
+        assertSame(this.border, layout.getItem(0));
+        assertSame(this.border, layout.getItem(17));
+        assertSame(this.close, layout.getItem(22));
+        assertNull(layout.getItem(10));
+        assertNull(layout.getItem(-1));
+        assertNull(layout.getItem(27));
+        assertArrayEquals(new int[]{10, 11, 12, 13, 14, 15, 16}, layout.getPaginationSlots());
+    }
+
+    @Test
+    void unboundCharactersAreEmpty() {
+        CompiledScheme layout = new InventoryScheme()
+                .mask("1x1")
+                .bindItem('1', this.border)
+                .compile();
+
+        assertSame(this.border, layout.getItem(0));
+        assertNull(layout.getItem(1));
+        assertSame(this.border, layout.getItem(2));
+        assertArrayEquals(new int[0], layout.getPaginationSlots());
+    }
+
+    @Test
+    void compiledLayoutsAreCachedUntilTheSchemeChanges() {
+        InventoryScheme scheme = new InventoryScheme()
+                .mask("1c")
+                .bindItem('1', this.border);
+        CompiledScheme layout = scheme.compile();
+
+        assertSame(layout, scheme.compile());
+
+        scheme.bindItem('c', this.close);
+        CompiledScheme updated = scheme.compile();
+
+        // The previous layout is not affected by the change
+        assertNotSame(layout, updated);
+        assertNull(layout.getItem(1));
+        assertSame(this.close, updated.getItem(1));
+
+        scheme.unbindItem('1');
+        assertNull(scheme.compile().getItem(0));
+    }
+}
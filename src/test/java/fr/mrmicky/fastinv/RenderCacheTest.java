@@ -0,0 +1,174 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.Material;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RenderCacheTest {
+
+    private final List<Integer> rendered = new ArrayList<>();
+
+    private final IntFunction<ItemStack> items = page -> {
+        this.rendered.add(page);
+        return new ItemStack(Material.STONE, page);
+    };
+
+    @Test
+    void cachedItemsAreReused() {
+        RenderCache cache = RenderCache.ofSize(10);
+
+        ItemStack item = cache.getItem(this.items, 1);
+
+        assertSame(item, cache.getItem(this.items, 1));
+        assertEquals(1, this.rendered.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void leastRecentlyUsedItemsAreEvicted() {
+        RenderCache cache = RenderCache.ofSize(3);
+
+        cache.getItem(this.items, 1);
+        cache.getItem(this.items, 2);
+        cache.getItem(this.items, 3);
+        cache.getItem(this.items, 1);
+        cache.getItem(this.items, 4);
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        // Page 2 was the least recently used item, page 1 was used again before page 4
+        this.rendered.clear();
+        cache.getItem(this.items, 1);
+        cache.getItem(this.items, 3);
+        cache.getItem(this.items, 2);
+
+        assertEquals(1, this.rendered.size());
+        assertEquals(2, (int) this.rendered.get(0));
+    }
+
+    @Test
+    void emptySlotsCountAgainstTheSize() {
+        RenderCache cache = RenderCache.ofSize(5);
+        IntFunction<ItemStack> emptySlots = page -> null;
+
+        for (int page = 0; page < 100; page++) {
+            assertNull(cache.getItem(emptySlots, page));
+        }
+
+        assertEquals(5, cache.size());
+        assertEquals(95, cache.getEvictionCount());
+    }
+
+    @Test
+    void itemsAreEvictedByWeight() {
+        RenderCache cache = RenderCache.ofWeight(10, ItemStack::getAmount);
+
+        cache.getItem(this.items, 4);
+        cache.getItem(this.items, 5);
+        assertEquals(2, cache.size());
+
+        // 4 + 5 + 3 is over the maximum weight, so the item of weight 4 is evicted
+        cache.getItem(this.items, 3);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        this.rendered.clear();
+        cache.getItem(this.items, 5);
+        cache.getItem(this.items, 3);
+        assertEquals(0, this.rendered.size());
+    }
+
+    @Test
+    void heavyItemsEvictAllTheOthers() {
+        RenderCache cache = RenderCache.ofWeight(10, ItemStack::getAmount);
+
+        cache.getItem(this.items, 2);
+        cache.getItem(this.items, 3);
+        cache.getItem(this.items, 20);
+
+        // The last item is always kept, even over the maximum weight
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getEvictionCount());
+
+        // And it is evicted by the next item
+        cache.getItem(this.items, 1);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void invalidateOnlyRemovesTheItemsOfItsOwner() {
+        RenderCache cache = RenderCache.ofSize(4);
+        IntFunction<ItemStack> otherItems = page -> new ItemStack(Material.DIRT, page);
+
+        cache.getItem(this.items, 1);
+        cache.getItem(this.items, 2);
+        cache.getItem(otherItems, 1);
+
+        cache.invalidate(this.items);
+        assertEquals(1, cache.size());
+
+        // The weight of the removed items is released too
+        cache.getItem(this.items, 3);
+        cache.getItem(this.items, 4);
+        cache.getItem(this.items, 5);
+        assertEquals(4, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    void clearReleasesTheWeight() {
+        RenderCache cache = RenderCache.ofSize(2);
+
+        cache.getItem(this.items, 1);
+        cache.getItem(this.items, 2);
+        cache.clear();
+
+        cache.getItem(this.items, 3);
+        cache.getItem(this.items, 4);
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    void fetchOnlyRendersTheMissingItems() {
+        RenderCache cache = RenderCache.ofSize(100);
+        List<Integer> fetched = new ArrayList<>();
+        PageSource source = new PageSource() {
+            @Override
+            public int size() {
+                return 100;
+            }
+
+            @Override
+            public void fetch(int fromIndex, int toIndex, BiConsumer<ItemStack, Consumer<InventoryClickEvent>> consumer) {
+                for (int i = fromIndex; i < toIndex; i++) {
+                    fetched.add(i);
+                    consumer.accept(new ItemStack(Material.STONE, i + 1), null);
+                }
+            }
+        };
+        List<Integer> amounts = new ArrayList<>();
+
+        cache.fetch(source, 2, 4, (item, handler) -> amounts.add(item.getAmount()));
+        cache.fetch(source, 0, 6, (item, handler) -> amounts.add(item.getAmount()));
+
+        assertEquals(Arrays.asList(2, 3, 0, 1, 4, 5), fetched);
+        assertEquals(Arrays.asList(3, 4, 1, 2, 3, 4, 5, 6), amounts);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(6, cache.getMissCount());
+    }
+}
@@ -0,0 +1,87 @@
+package fr.mrmicky.fastinv;
+
+import org.bukkit.event.inventory.InventoryType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotMaskTest {
+
+    @Test
+    void unionIntersectAndSubtract() {
+        SlotMask a = SlotMask.range(0, 5);
+        SlotMask b = SlotMask.of(3, 4, 5, 6);
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6}, a.union(b).toArray());
+        assertArrayEquals(new int[]{3, 4}, a.intersect(b).toArray());
+        assertArrayEquals(new int[]{0, 1, 2}, a.subtract(b).toArray());
+        assertArrayEquals(new int[]{5, 6}, b.subtract(a).toArray());
+    }
+
+    @Test
+    void operationsDontChangeTheOperands() {
+        SlotMask a = SlotMask.of(1, 2);
+        SlotMask b = SlotMask.of(2, 3);
+
+        a.union(b);
+        a.subtract(b);
+        b.intersect(a);
+
+        assertEquals(SlotMask.of(1, 2), a);
+        assertEquals(SlotMask.of(2, 3), b);
+    }
+
+    @Test
+    void emptyMasks() {
+        assertTrue(SlotMask.empty().isEmpty());
+        assertTrue(SlotMask.range(4, 2).isEmpty());
+        assertTrue(SlotMask.of(1).intersect(SlotMask.of(2)).isEmpty());
+        assertEquals(SlotMask.empty(), SlotMask.of(1, 2).subtract(SlotMask.range(0, 3)));
+    }
+
+    @Test
+    void rowsColumnsAndRectangles() {
+        assertArrayEquals(new int[]{9, 10, 11, 12, 13, 14, 15, 16, 17}, SlotMask.row(1).toArray());
+        assertArrayEquals(new int[]{4, 13, 22}, SlotMask.column(4, 3).toArray());
+        assertArrayEquals(new int[]{10, 11, 19, 20}, SlotMask.rectangle(1, 1, 2, 2).toArray());
+        assertEquals(SlotMask.rows(0, 2), SlotMask.rectangle(0, 0, 2, 8));
+    }
+
+    @Test
+    void bordersOfADoubleChest() {
+        SlotMask borders = SlotMask.borders(InventoryType.CHEST, 54);
+
+        assertEquals(26, borders.size());
+        assertTrue(borders.contains(0));
+        assertTrue(borders.contains(17));
+        assertTrue(borders.contains(45));
+        assertFalse(borders.contains(10));
+        assertEquals(SlotMask.rectangle(1, 1, 4, 7), SlotMask.rows(0, 5).subtract(borders));
+        assertSame(borders, SlotMask.borders(InventoryType.CHEST, 54));
+    }
+
+    @Test
+    void smallInventoriesAreAllBorders() {
+        assertEquals(SlotMask.range(0, 18), SlotMask.borders(InventoryType.CHEST, 18));
+    }
+
+    @Test
+    void containsOutOfBoundsSlots() {
+        SlotMask mask = SlotMask.of(0, 8);
+
+        assertFalse(mask.contains(-1));
+        assertFalse(mask.contains(100));
+    }
+
+    @Test
+    void invalidSlotsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SlotMask.of(-1));
+        assertThrows(IllegalArgumentException.class, () -> SlotMask.rectangle(0, 3, 1, 9));
+        assertThrows(IllegalArgumentException.class, () -> SlotMask.rectangle(0, 5, 1, 4));
+    }
+}